@@ -0,0 +1,193 @@
+package Document;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a file so that it is never left half written. Everything goes to a
+ * temporary file next to the target, and commit forces that to the disk and
+ * then moves it over the target in one step. If the program stops or the
+ * disk fills up before commit, the target still holds what it did before.
+ * <pre>
+ *   AtomicFileWriter file = new AtomicFileWriter(path);
+ *   try {
+ *       write to file.getChannel() or file.getOutputStream()
+ *       file.commit();
+ *   } finally {
+ *       file.close();
+ *   }
+ * </pre>
+ * The writer can also keep backups of what the target held before: with
+ * two backups, commit keeps the last version as "name.1" and the one before
+ * it as "name.2". A backup is a second link to the old file where the file
+ * system has them, so keeping one doesn't copy the file.
+ * @author Grant
+ */
+public class AtomicFileWriter implements Closeable {
+    private final File target;
+    private final File temp;
+    private final int backups;
+    private FileChannel channel;
+    private boolean committed;
+
+    /**
+     * Starts writing a new version of the target without keeping backups.
+     * @param target the file to replace
+     * @throws IOException if the temporary file can't be made
+     */
+    public AtomicFileWriter(File target) throws IOException {
+        this(target, 0);
+    }
+
+    /**
+     * Starts writing a new version of the target.
+     * @param target the file to replace
+     * @param backups how many old versions of the target to keep
+     * @throws IOException if the temporary file can't be made
+     */
+    public AtomicFileWriter(File target, int backups) throws IOException {
+        this.target = target.getAbsoluteFile();
+        this.backups = Math.max(0, backups);
+
+        File directory = this.target.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("ERROR: Could not make directory " + directory);
+        }
+        temp = File.createTempFile("." + this.target.getName() + ".", ".tmp", directory);
+        channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Returns the channel to write the new version to.
+     * @return channel
+     * @throws IOException if the writer was already committed or closed
+     */
+    public FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            throw new IOException("ERROR: Already finished writing " + target);
+        }
+        return channel;
+    }
+
+    /**
+     * Returns a stream that writes to the channel. Closing the stream closes
+     * the channel, so only do that through commit or close.
+     * @return output stream
+     * @throws IOException if the writer was already committed or closed
+     */
+    public OutputStream getOutputStream() throws IOException {
+        return Channels.newOutputStream(getChannel());
+    }
+
+    /**
+     * Forces what was written to the disk and moves it over the target,
+     * keeping the old target as a backup if there are backups.
+     * @throws IOException writing error; the target is left as it was
+     */
+    public void commit() throws IOException {
+        FileChannel written = getChannel();
+        written.force(true);
+        written.close();
+        channel = null;
+
+        if (backups > 0 && target.isFile()) {
+            rollBackups();
+        }
+
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        committed = true;
+        forceDirectory();
+    }
+
+    /**
+     * Stops writing. If commit wasn't called, the temporary file is deleted
+     * and the target is left alone.
+     * @throws IOException if the temporary file can't be closed or deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        if (!committed) {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    /**
+     * Returns the file being replaced
+     * @return target
+     */
+    public File getTarget() {
+        return target;
+    }
+
+    /**
+     * Returns the file holding the given backup, 1 being the newest.
+     * @param target the file that is backed up
+     * @param number which backup
+     * @return the backup file
+     */
+    public static File getBackup(File target, int number) {
+        return new File(target.getAbsolutePath() + "." + number);
+    }
+
+    /**
+     * Moves each backup back one place, dropping the oldest, and makes the
+     * current target the newest backup.
+     */
+    private void rollBackups() throws IOException {
+        Files.deleteIfExists(getBackup(target, backups).toPath());
+        for (int i = backups - 1; i >= 1; --i) {
+            Path backup = getBackup(target, i).toPath();
+            if (Files.exists(backup)) {
+                Files.move(backup, getBackup(target, i + 1).toPath(),
+                           StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        // The target stays where it is until the new version replaces it.
+        Path newest = getBackup(target, 1).toPath();
+        try {
+            Files.createLink(newest, target.toPath());
+        } catch (IOException | UnsupportedOperationException ex) {
+            Files.copy(target.toPath(), newest, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Forces the move itself to the disk. Not every system lets a directory
+     * be opened, and there the move is left to the file system.
+     */
+    private void forceDirectory() {
+        File directory = target.getParentFile();
+        if (directory == null) {
+            return;
+        }
+        try {
+            FileChannel folder = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+            try {
+                folder.force(true);
+            } finally {
+                folder.close();
+            }
+        } catch (IOException ex) {
+            // The move is done; only how soon it reaches the disk is up to the system.
+        }
+    }
+}
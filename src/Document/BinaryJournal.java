@@ -0,0 +1,489 @@
+package Document;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores a journal in a compact binary file that is quick to open.
+ * Everything but the text of the entries is in an index at the front of the
+ * file, with one fixed-width record per entry, and the text of every entry is
+ * in a body region after it. Opening a journal only reads the index, so it
+ * takes time for the number of entries and not for how much was written; the
+ * text of an entry is read when it is first asked for (see LazyEntry).
+ * <p>
+ * The file isn't memory mapped, since a file that is still mapped can't be
+ * replaced on Windows, and the journal is usually saved back over the file it
+ * was read from. Instead the file is kept open, and each entry reads its text
+ * with a positional read. A file that is open can still be replaced, and the
+ * entries go on reading the text the file had when it was read.
+ * <pre>
+ *   header:      int magic, int version, int entries, int strings,
+ *                int scriptures, int topics, int refs, int unused,
+ *                long offset of each region below
+ *   strings:     strings * (int length, UTF-8 bytes)
+ *   scriptures:  scriptures * (int book, int chapter, int startVerse,
+ *                int endVerse), each the id of a string
+ *   topics:      topics * int, the id of each topic's name
+ *   refs:        refs * int
+ *   index:       entries * (int date, int flags, int refOffset,
+ *                short scriptureCount, short extraTopicCount,
+ *                long topicMask, long bodyOffset, int bodyLength, int unused)
+ *   body:        the UTF-8 text of every entry
+ * </pre>
+ * A date like 2014-10-30 is stored as the number 20141030; any other date is
+ * stored as the id of a string and flagged. An entry's scriptures are the
+ * refs starting at refOffset. Bit n of topicMask means the entry has topic n;
+ * an entry with topics past the 64th has their ids in the refs after its
+ * scriptures.
+ * @author Grant
+ */
+public class BinaryJournal {
+    private static final int MAGIC = 0x534A424E;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 80;
+    private static final int INDEX_SIZE = 40;
+
+    // The date isn't yyyy-MM-dd, so the date field is the id of a string.
+    private static final int FLAG_STRING_DATE = 1;
+
+    private final File path;
+
+    /**
+     * Constructs a binary journal kept in the given file.
+     * @param path the file
+     */
+    public BinaryJournal(File path) {
+        this.path = path;
+    }
+
+    /**
+     * Writes the entries to the file. The file is replaced only once
+     * everything is written (see AtomicFileWriter).
+     * @param entries the entries to save
+     * @throws IOException writing error, or an entry has more scriptures or
+     *                     topics than fit in its index record
+     */
+    public void save(List<Entry> entries) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        Map<String, Integer> scriptures = new LinkedHashMap<>();
+        List<int[]> scriptureIds = new ArrayList<>();
+        Map<String, Integer> topics = new LinkedHashMap<>();
+        int[] refStarts = new int[entries.size()];
+        int[] textLengths = new int[entries.size()];
+        List<Integer> refs = new ArrayList<>();
+
+        // Give every string, scripture and topic an id, and lay out the refs.
+        for (int i = 0; i < entries.size(); ++i) {
+            Entry entry = entries.get(i);
+            if (encodeDate(entry.getDate()) < 0) {
+                id(strings, String.valueOf(entry.getDate()));
+            }
+
+            refStarts[i] = refs.size();
+            for (Scripture scripture : entry.getScriptureList()) {
+                String key = scripture.getBookName() + '\u0000' + scripture.getChapter() + '\u0000' +
+                             scripture.getStartVerse() + '\u0000' + scripture.getEndVerse();
+                if (!scriptures.containsKey(key)) {
+                    scriptures.put(key, scriptures.size());
+                    scriptureIds.add(new int[] {id(strings, scripture.getBookName()),
+                                                id(strings, scripture.getChapter()),
+                                                id(strings, scripture.getStartVerse()),
+                                                id(strings, scripture.getEndVerse())});
+                }
+                refs.add(scriptures.get(key));
+            }
+            for (String topic : entry.getTopicsList()) {
+                int topicId = id(topics, topic);
+                if (topicId >= 64) {
+                    refs.add(topicId);
+                }
+            }
+            checkCount(entry.getScriptureList().size(), entry);
+            checkCount(refs.size() - refStarts[i] - entry.getScriptureList().size(), entry);
+
+            textLengths[i] = utf8Length(entry.getText());
+        }
+        List<String> topicNames = new ArrayList<>(topics.keySet());
+        for (String topic : topicNames) {
+            id(strings, topic);
+        }
+
+        AtomicFileWriter file = new AtomicFileWriter(path);
+        try {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(file.getOutputStream(), 64 * 1024));
+            byte[][] stringBytes = new byte[strings.size()][];
+            long stringsSize = 0;
+            int s = 0;
+            for (String string : strings.keySet()) {
+                stringBytes[s] = string.getBytes(StandardCharsets.UTF_8);
+                stringsSize += 4 + stringBytes[s++].length;
+            }
+
+            long stringsOffset = HEADER_SIZE;
+            long scripturesOffset = stringsOffset + stringsSize;
+            long topicsOffset = scripturesOffset + 16L * scriptureIds.size();
+            long refsOffset = topicsOffset + 4L * topicNames.size();
+            long indexOffset = refsOffset + 4L * refs.size();
+            long bodyOffset = indexOffset + (long) INDEX_SIZE * entries.size();
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            out.writeInt(strings.size());
+            out.writeInt(scriptureIds.size());
+            out.writeInt(topicNames.size());
+            out.writeInt(refs.size());
+            out.writeInt(0);
+            out.writeLong(stringsOffset);
+            out.writeLong(scripturesOffset);
+            out.writeLong(topicsOffset);
+            out.writeLong(refsOffset);
+            out.writeLong(indexOffset);
+            out.writeLong(bodyOffset);
+
+            for (byte[] bytes : stringBytes) {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            for (int[] ids : scriptureIds) {
+                for (int id : ids) {
+                    out.writeInt(id);
+                }
+            }
+            for (String topic : topicNames) {
+                out.writeInt(strings.get(topic));
+            }
+            for (int ref : refs) {
+                out.writeInt(ref);
+            }
+
+            long textOffset = 0;
+            for (int i = 0; i < entries.size(); ++i) {
+                Entry entry = entries.get(i);
+                int date = encodeDate(entry.getDate());
+                long topicMask = 0;
+                for (String topic : entry.getTopicsList()) {
+                    int topicId = topics.get(topic);
+                    if (topicId < 64) {
+                        topicMask |= 1L << topicId;
+                    }
+                }
+
+                out.writeInt(date < 0 ? strings.get(String.valueOf(entry.getDate())) : date);
+                out.writeInt(date < 0 ? FLAG_STRING_DATE : 0);
+                out.writeInt(refStarts[i]);
+                out.writeShort(entry.getScriptureList().size());
+                int refEnd = i + 1 < entries.size() ? refStarts[i + 1] : refs.size();
+                out.writeShort(refEnd - refStarts[i] - entry.getScriptureList().size());
+                out.writeLong(topicMask);
+                out.writeLong(textOffset);
+                out.writeInt(textLengths[i]);
+                out.writeInt(0);
+                textOffset += textLengths[i];
+            }
+
+            for (Entry entry : entries) {
+                out.write(String.valueOf(entry.getText()).getBytes(StandardCharsets.UTF_8));
+            }
+            out.flush();
+            file.commit();
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Reads the index of the file. The entries have their dates, scriptures
+     * and topics, and each one reads its text from the file when it is first
+     * asked for. The file stays open until every entry has read its text.
+     * @return the entries in the file, in order
+     * @throws IOException reading error, or the file isn't a binary journal
+     */
+    public List<Entry> read() throws IOException {
+        FileChannel channel = FileChannel.open(path.toPath(), StandardOpenOption.READ);
+        boolean kept = false;
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("ERROR: Not a binary journal: " + path);
+            }
+            ByteBuffer header = read(channel, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("ERROR: Not a binary journal: " + path);
+            }
+
+            long bodyOffset = header.getLong(HEADER_SIZE - 8);
+            if (bodyOffset < HEADER_SIZE || bodyOffset > channel.size() ||
+                    bodyOffset > Integer.MAX_VALUE || channel.size() - bodyOffset > Integer.MAX_VALUE) {
+                throw new IOException("ERROR: Binary journal is damaged: " + path);
+            }
+            ByteBuffer meta = read(channel, 0, (int) bodyOffset);
+            Body body = new Body(path, channel, bodyOffset, channel.size() - bodyOffset);
+
+            List<Entry> entries;
+            try {
+                entries = readIndex(meta, body);
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException ex) {
+                throw new IOException("ERROR: Binary journal is damaged: " + path, ex);
+            }
+            kept = !entries.isEmpty();
+            return entries;
+        } finally {
+            if (!kept) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads size bytes of the channel, starting at position, into a buffer.
+     */
+    private ByteBuffer read(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("ERROR: Binary journal is damaged: " + path);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private List<Entry> readIndex(ByteBuffer meta, Body body) {
+        int entryCount = count(meta.getInt(8));
+        int stringCount = count(meta.getInt(12));
+        int scriptureCount = count(meta.getInt(16));
+        int topicCount = count(meta.getInt(20));
+        long stringsOffset = meta.getLong(32);
+        long scripturesOffset = meta.getLong(40);
+        long topicsOffset = meta.getLong(48);
+        long refsOffset = meta.getLong(56);
+        long indexOffset = meta.getLong(64);
+
+        String[] strings = new String[stringCount];
+        meta.position((int) stringsOffset);
+        for (int i = 0; i < stringCount; ++i) {
+            byte[] bytes = new byte[count(meta.getInt())];
+            meta.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int[] scriptures = new int[scriptureCount * 4];
+        meta.position((int) scripturesOffset);
+        for (int i = 0; i < scriptures.length; ++i) {
+            scriptures[i] = meta.getInt();
+        }
+
+        String[] topics = new String[topicCount];
+        meta.position((int) topicsOffset);
+        for (int i = 0; i < topicCount; ++i) {
+            topics[i] = strings[meta.getInt()];
+        }
+
+        List<Entry> entries = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; ++i) {
+            int record = (int) indexOffset + i * INDEX_SIZE;
+            int date = meta.getInt(record);
+            int flags = meta.getInt(record + 4);
+            int refOffset = meta.getInt(record + 8);
+            int entryScriptures = meta.getShort(record + 12) & 0xFFFF;
+            int extraTopics = meta.getShort(record + 14) & 0xFFFF;
+            long topicMask = meta.getLong(record + 16);
+            long textOffset = meta.getLong(record + 24);
+            int textLength = meta.getInt(record + 32);
+
+            if (textOffset < 0 || textLength < 0 || textOffset + textLength > body.size) {
+                throw new IllegalArgumentException("Damaged index");
+            }
+            body.retain();
+            LazyEntry entry = new LazyEntry(body, textOffset, textLength);
+            entry.setDate((flags & FLAG_STRING_DATE) != 0 ? strings[date] : decodeDate(date));
+
+            int ref = (int) refsOffset + refOffset * 4;
+            for (int j = 0; j < entryScriptures; ++j, ref += 4) {
+                int scripture = meta.getInt(ref) * 4;
+                entry.addScripture(new Scripture(strings[scriptures[scripture]],
+                                                 strings[scriptures[scripture + 1]],
+                                                 strings[scriptures[scripture + 2]],
+                                                 strings[scriptures[scripture + 3]]));
+            }
+            for (int topic = 0; topicMask != 0; ++topic, topicMask >>>= 1) {
+                if ((topicMask & 1) != 0) {
+                    entry.addTopic(topics[topic]);
+                }
+            }
+            for (int j = 0; j < extraTopics; ++j, ref += 4) {
+                entry.addTopic(topics[meta.getInt(ref)]);
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * The body region of a journal that was read. It keeps the file open for
+     * as long as some entry read from it still has to read its text, and
+     * closes it once none do.
+     */
+    static class Body {
+        private final File path;
+        private final long offset;
+        private final long size;
+        private FileChannel channel;
+        private int unread;
+
+        Body(File path, FileChannel channel, long offset, long size) {
+            this.path = path;
+            this.channel = channel;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        /**
+         * Counts one more entry that will read its text.
+         */
+        synchronized void retain() {
+            ++unread;
+        }
+
+        /**
+         * Counts one entry fewer that will read its text, closing the file
+         * once there are none.
+         */
+        synchronized void release() {
+            if (--unread == 0 && channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ex) {
+                    // Nothing more is read from it either way.
+                }
+                channel = null;
+            }
+        }
+
+        /**
+         * Reads and decodes the text at the offset in the body, and counts
+         * the entry as having read its text.
+         * @param textOffset where the text starts in the body
+         * @param length how many bytes the text is
+         * @return the text
+         * @throws IOException reading error
+         */
+        synchronized String read(long textOffset, int length) throws IOException {
+            if (channel == null) {
+                throw new IOException("ERROR: Binary journal is closed: " + path);
+            }
+            ByteBuffer bytes = ByteBuffer.allocate(length);
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, offset + textOffset + bytes.position()) < 0) {
+                    throw new IOException("ERROR: Binary journal is damaged: " + path);
+                }
+            }
+            release();
+            return new String(bytes.array(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static int count(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Damaged header");
+        }
+        return count;
+    }
+
+    private static void checkCount(int count, Entry entry) throws IOException {
+        if (count > 0xFFFF) {
+            throw new IOException("ERROR: Too many references in entry " + entry.getDate());
+        }
+    }
+
+    private static int id(Map<String, Integer> ids, String value) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = ids.size();
+            ids.put(value, id);
+        }
+        return id;
+    }
+
+    /**
+     * Turns a date like 2014-10-30 into 20141030.
+     * @param date the date
+     * @return the number, or -1 if the date isn't written that way
+     */
+    private static int encodeDate(String date) {
+        if (date == null || date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            return -1;
+        }
+
+        int number = 0;
+        for (int i = 0; i < 10; ++i) {
+            if (i != 4 && i != 7) {
+                char c = date.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                number = number * 10 + (c - '0');
+            }
+        }
+        return number;
+    }
+
+    /**
+     * Turns a number like 20141030 back into 2014-10-30.
+     */
+    private static String decodeDate(int number) {
+        char[] date = new char[10];
+        for (int i = 9; i >= 0; --i) {
+            if (i == 4 || i == 7) {
+                date[i] = '-';
+            } else {
+                date[i] = (char) ('0' + number % 10);
+                number /= 10;
+            }
+        }
+        return new String(date);
+    }
+
+    /**
+     * Returns how many bytes the text will be in UTF-8, without encoding it.
+     */
+    private static int utf8Length(String text) {
+        text = String.valueOf(text);
+        int length = 0;
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() &&
+                       Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                ++i;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Returns the file
+     * @return path
+     */
+    public File getPath() {
+        return path;
+    }
+}
@@ -1,161 +1,259 @@
-package Document;
-
-import java.util.ArrayList;
-import java.util.List;
-
-/**
- * It will store the text that the user writes and it stores the scriptures and 
- * topics within the text itself. The entry will know the date of when it was
- * written as well.
- * @author Grant
- */
-public class Entry {
-    protected String text = "";
-    protected List <Scripture> scriptures = new ArrayList();
-    protected List <String> topics = new ArrayList();
-    protected String date;
-    
-    /**
-     * Constructs an entry with no text nor date. The scriptures and topics
-     * list are empty.
-     */
-    public Entry() {
-        
-    }
-    
-    /**
-     * Adds the topic to the list.
-     * @param topic topic to add.
-     */
-    public void addTopic(String topic) {
-        topics.add(topic);
-    }
-    
-    /**
-     * Removes a topic from the list given the index.
-     * @param index index of the topic to remove
-     */
-    public void removeTopic(int index) {
-        if (index < topics.size() && index != 0) {
-            topics.remove(index);
-        }
-    }
-    
-    /**
-     * Removes all topics from the list.
-     */
-    public void removeAllTopics() {
-        while (topics.size() > 0) {
-            topics.remove(0);
-        }
-    }
-    
-    /**
-     * Adds the scripture given to the list.
-     * @param scripture scripture to add
-     */
-    public void addScripture(Scripture scripture) {
-        scriptures.add(scripture);
-    }
-    
-    /**
-     * Removes a scripture given the index
-     * @param index the location of the scripture to remove.
-     */
-    public void removeScripture(int index) {
-        if (index < scriptures.size() && index != 0) {
-            scriptures.remove(index);
-        }
-    }
-    
-    /**
-     * Removes all the scriptures in the list.
-     */
-    public void removeAllScriptures() {
-        while (scriptures.size() > 0) {
-            scriptures.remove(0);
-        }
-    }
-    
-    /**
-     * Returns a list of the scriptures
-     * @return scriptures
-     */
-    public List <Scripture> getScriptureList() {
-        return scriptures;
-    }
-    
-    /**
-     * Returns a list of the topics
-     * @return topics
-     */
-    public List <String> getTopicsList() {
-        return topics;
-    }
-    
-    /**
-     * Returns the scripture at location of the index. If it is out of bounds
-     * it will return null.
-     * @param index the index of the desired scripture
-     * @return scripture.get(index)
-     */
-    public Scripture getScriptureAt(int index) {
-        if (index > scriptures.size() || index < 0) {
-            return null;
-        }
-        return scriptures.get(index);
-    }
-    
-    /**
-     * Sets the scripture list to the new one.
-     * @param scriptureList the new scripture list for scriptures 
-     */
-    public void setScriptureList(List<Scripture> scriptureList) {
-        scriptures = scriptureList;
-    }
-    
-    /**
-     * Returns the topic at the given index. If the index is out of bounds, return
-     * null.
-     * @param index the index of the desired topic.
-     * @return topic.get(index)
-     */
-    public String getTopicAt(int index) {
-        if (index > topics.size() || index < 0) {
-            return null;
-        }
-        return topics.get(index);
-    }
-    
-    /**
-     * Returns the text
-     * @return text
-     */
-    public String getText() {
-        return text;
-    }
-    
-    /**
-     * Sets the text to the new text.
-     * @param text the new text
-     */
-    public void setText(String text) {
-        this.text = text;
-    }
-    
-    /**
-     * Returns the date.
-     * @return date
-     */
-    public String getDate() {
-        return date;
-    }
-
-    /**
-     * Sets the date to the new date.
-     * @param date the new date.
-     */
-    public void setDate(String date) {
-        this.date = date;
-    }
+package Document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * It will store the text that the user writes and it stores the scriptures and 
+ * topics within the text itself. The entry will know the date of when it was
+ * written as well.
+ * <p>
+ * A scripture or topic is only kept once. Next to each list is a set of what
+ * is already in it (scriptures by their full title), so adding checks for a
+ * duplicate without searching the list. A scripture's title is taken when it
+ * is added and kept next to it, so the set stays right even if the scripture
+ * is changed afterwards.
+ * <p>
+ * Every change to an entry moves its version on, and a copy has the version
+ * of the entry it was made from, so a copy can be checked for being out of
+ * date without comparing the two.
+ * @author Grant
+ */
+public class Entry {
+    protected String text = "";
+    protected List <Scripture> scriptures = new ArrayList();
+    protected List <String> topics = new ArrayList();
+    protected List <String> scriptureKeys = new ArrayList<>();
+    protected Set <String> scriptureTitles = new HashSet<>();
+    protected Set <String> topicSet = new HashSet<>();
+    protected String date;
+    protected int version;
+    
+    /**
+     * Constructs an entry with no text nor date. The scriptures and topics
+     * list are empty.
+     */
+    public Entry() {
+        
+    }
+    
+    /**
+     * Returns a copy of the entry that can be saved while this one keeps
+     * changing. The lists are copied, but the text, date and scriptures are
+     * shared, since none of them are changed in place.
+     * @return the copy
+     */
+    public Entry copy() {
+        Entry copy = new Entry();
+        copy.text = getText();
+        copyReferencesTo(copy);
+        return copy;
+    }
+    
+    /**
+     * Gives the copy this entry's date, scriptures, topics and version.
+     * @param copy the copy
+     */
+    protected void copyReferencesTo(Entry copy) {
+        copy.date = date;
+        copy.version = version;
+        copy.scriptures.addAll(scriptures);
+        copy.scriptureKeys.addAll(scriptureKeys);
+        copy.topics.addAll(topics);
+        copy.scriptureTitles.addAll(scriptureTitles);
+        copy.topicSet.addAll(topicSet);
+    }
+    
+    /**
+     * Adds the topic to the list unless it is already there.
+     * @param topic topic to add.
+     * @return true if the topic was added
+     */
+    public boolean addTopic(String topic) {
+        if (!topicSet.add(topic)) {
+            return false;
+        }
+        topics.add(topic);
+        ++version;
+        return true;
+    }
+    
+    /**
+     * Returns true if the entry has the topic.
+     * @param topic topic to look for
+     * @return true or false
+     */
+    public boolean hasTopic(String topic) {
+        return topicSet.contains(topic);
+    }
+    
+    /**
+     * Removes a topic from the list given the index.
+     * @param index index of the topic to remove
+     */
+    public void removeTopic(int index) {
+        if (index < topics.size() && index != 0) {
+            topicSet.remove(topics.remove(index));
+            ++version;
+        }
+    }
+    
+    /**
+     * Removes all topics from the list.
+     */
+    public void removeAllTopics() {
+        topics.clear();
+        topicSet.clear();
+        ++version;
+    }
+    
+    /**
+     * Adds the scripture given to the list unless one with the same full
+     * title is already there.
+     * @param scripture scripture to add
+     * @return true if the scripture was added
+     */
+    public boolean addScripture(Scripture scripture) {
+        String key = scripture.getFullTitle();
+        if (!scriptureTitles.add(key)) {
+            return false;
+        }
+        scriptures.add(scripture);
+        scriptureKeys.add(key);
+        ++version;
+        return true;
+    }
+    
+    /**
+     * Returns true if the entry has a scripture with the same full title.
+     * @param scripture scripture to look for
+     * @return true or false
+     */
+    public boolean hasScripture(Scripture scripture) {
+        return scriptureTitles.contains(scripture.getFullTitle());
+    }
+    
+    /**
+     * Removes a scripture given the index
+     * @param index the location of the scripture to remove.
+     */
+    public void removeScripture(int index) {
+        if (index < scriptures.size() && index != 0) {
+            scriptures.remove(index);
+            scriptureTitles.remove(scriptureKeys.remove(index));
+            ++version;
+        }
+    }
+    
+    /**
+     * Removes all the scriptures in the list.
+     */
+    public void removeAllScriptures() {
+        scriptures.clear();
+        scriptureKeys.clear();
+        scriptureTitles.clear();
+        ++version;
+    }
+    
+    /**
+     * Returns a list of the scriptures in the order they were added. The list
+     * can't be changed; use addScripture and removeScripture instead.
+     * @return scriptures
+     */
+    public List <Scripture> getScriptureList() {
+        return Collections.unmodifiableList(scriptures);
+    }
+    
+    /**
+     * Returns a list of the topics in the order they were added. The list
+     * can't be changed; use addTopic and removeTopic instead.
+     * @return topics
+     */
+    public List <String> getTopicsList() {
+        return Collections.unmodifiableList(topics);
+    }
+    
+    /**
+     * Returns the scripture at location of the index. If it is out of bounds
+     * it will return null.
+     * @param index the index of the desired scripture
+     * @return scripture.get(index)
+     */
+    public Scripture getScriptureAt(int index) {
+        if (index > scriptures.size() || index < 0) {
+            return null;
+        }
+        return scriptures.get(index);
+    }
+    
+    /**
+     * Sets the scripture list to the new one. Duplicates in the new list are
+     * left out.
+     * @param scriptureList the new scripture list for scriptures 
+     */
+    public void setScriptureList(List<Scripture> scriptureList) {
+        removeAllScriptures();
+        for (Scripture scripture : scriptureList) {
+            addScripture(scripture);
+        }
+    }
+    
+    /**
+     * Returns the topic at the given index. If the index is out of bounds, return
+     * null.
+     * @param index the index of the desired topic.
+     * @return topic.get(index)
+     */
+    public String getTopicAt(int index) {
+        if (index > topics.size() || index < 0) {
+            return null;
+        }
+        return topics.get(index);
+    }
+    
+    /**
+     * Returns the text
+     * @return text
+     */
+    public String getText() {
+        return text;
+    }
+    
+    /**
+     * Sets the text to the new text.
+     * @param text the new text
+     */
+    public void setText(String text) {
+        this.text = text;
+        ++version;
+    }
+    
+    /**
+     * Returns the date.
+     * @return date
+     */
+    public String getDate() {
+        return date;
+    }
+
+    /**
+     * Sets the date to the new date.
+     * @param date the new date.
+     */
+    public void setDate(String date) {
+        this.date = date;
+        ++version;
+    }
+    
+    /**
+     * Returns the version, which is different after any change to the
+     * entry. A copy has the version the entry had when it was copied.
+     * @return version
+     */
+    public int getVersion() {
+        return version;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package Document;
+
+import java.io.IOException;
+
+/**
+ * Is given each entry as a journal file is read, so a reader never has to
+ * hold more than the entry it is working on.
+ * @author Grant
+ */
+public interface EntryHandler {
+    /**
+     * Called once for every entry, in the order they are in the file.
+     * @param entry the entry that was read
+     * @throws IOException to stop reading
+     */
+    void handle(Entry entry) throws IOException;
+}
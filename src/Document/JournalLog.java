@@ -0,0 +1,419 @@
+package Document;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Stores a journal as a log of changes, so saving one entry only writes that
+ * entry instead of the whole journal. Each change is a record added to the
+ * end of the log: an entry was saved, or an entry was deleted.
+ * <p>
+ * Entries are known by an id the log gives each one the first time it is
+ * saved, not by their date, since more than one entry can have the same
+ * date. The log keeps the id of every entry object it has read or saved, so
+ * the entries it hands back from open, and the ones given to create and
+ * save, are what save and delete have to be given afterwards.
+ * <p>
+ * Opening the journal reads its snapshot, if there is one, and then plays
+ * the log back on top of it. Once the log has grown bigger than the snapshot
+ * it is compacted: the snapshot is written again with every entry in it and
+ * the log is emptied. The snapshot is kept next to the log, with
+ * ".snapshot" added to its name.
+ * <pre>
+ *   file:   int magic, int version, records...
+ *   record: int length, int crc, byte type, payload
+ *   save:   long id, string date, string text, int count, count * (string
+ *           book, string chapter, string startVerse, string endVerse),
+ *           int count, count * string topic
+ *   delete: long id
+ * </pre>
+ * Strings are an int length and then UTF-8 bytes, and the crc covers the
+ * type and payload. A record that was only partly written when the program
+ * stopped fails its crc, and it and anything after it are dropped from the log.
+ * @author Grant
+ */
+public class JournalLog implements Closeable {
+    private static final int MAGIC = 0x534A4C47;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final byte SAVE = 1;
+    private static final byte DELETE = 2;
+
+    // The log isn't compacted until it is at least this big.
+    private static final long MIN_COMPACT_SIZE = 1024 * 1024;
+
+    private final File path;
+    private final File snapshot;
+    private FileChannel log;
+    private long snapshotSize;
+    private final Map<Entry, Long> ids = new IdentityHashMap<>();
+    private long nextId;
+
+    /**
+     * Constructs a log kept in the given file. Nothing is read until open.
+     * @param path the log file
+     */
+    public JournalLog(File path) {
+        this.path = path;
+        this.snapshot = new File(path.getPath() + ".snapshot");
+    }
+
+    /**
+     * Reads the snapshot and plays back the log, and then gets ready to add
+     * to the log. A damaged record at the end of the log is cut off.
+     * @return the entries in the order they were first saved
+     * @throws IOException reading error, or the snapshot is damaged
+     */
+    public synchronized List<Entry> open() throws IOException {
+        close();
+        Map<Long, Entry> entries = new LinkedHashMap<>();
+        ids.clear();
+        nextId = 0;
+
+        snapshotSize = 0;
+        if (snapshot.isFile()) {
+            ByteBuffer in = readAll(snapshot);
+            snapshotSize = in.limit();
+            if (replay(in, entries) != in.limit()) {
+                throw new IOException("ERROR: Journal snapshot is damaged: " + snapshot);
+            }
+        }
+
+        log = FileChannel.open(path.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (log.size() == 0) {
+            log.write(header());
+        } else {
+            ByteBuffer in = readAll(log);
+            long end = replay(in, entries);
+            if (end < 0) {
+                close();
+                throw new IOException("ERROR: Not a journal log: " + path);
+            }
+            log.truncate(end);
+        }
+        log.position(log.size());
+
+        for (Map.Entry<Long, Entry> entry : entries.entrySet()) {
+            ids.put(entry.getValue(), entry.getKey());
+            nextId = Math.max(nextId, entry.getKey() + 1);
+        }
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Starts the log over with the given entries, replacing whatever was in
+     * the files before, and gets ready to add to it.
+     * @param entries every entry in the journal
+     * @throws IOException writing error
+     */
+    public synchronized void create(List<Entry> entries) throws IOException {
+        close();
+        log = FileChannel.open(path.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        log.write(header());
+        compact(entries);
+    }
+
+    /**
+     * Adds a record to the log saying the entry was saved. Only the entry
+     * itself is written. An entry the log hasn't seen before is given a new
+     * id, even if another entry has the same date.
+     * @param entry the entry to save
+     * @throws IOException writing error
+     */
+    public synchronized void save(Entry entry) throws IOException {
+        append(SAVE, encodeEntry(getId(entry), entry));
+    }
+
+    /**
+     * Adds a record to the log saying the entry was deleted. Other entries
+     * with the same date are kept. An entry that was never saved to the log
+     * has nothing to delete.
+     * @param entry the entry
+     * @throws IOException writing error
+     */
+    public synchronized void delete(Entry entry) throws IOException {
+        Long id = ids.remove(entry);
+        if (id == null) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(id);
+        out.close();
+        append(DELETE, bytes.toByteArray());
+    }
+
+    /**
+     * Returns true once the log has grown big enough that it should be
+     * compacted.
+     * @return true or false
+     * @throws IOException if the log's size can't be read
+     */
+    public synchronized boolean needsCompaction() throws IOException {
+        checkOpen();
+        return log.size() > Math.max(MIN_COMPACT_SIZE, snapshotSize);
+    }
+
+    /**
+     * Writes a new snapshot with the given entries, which should be every
+     * entry in the journal, and empties the log. The entries keep their ids,
+     * and the log forgets the ids of entries that aren't given. The snapshot is replaced
+     * in one step by an AtomicFileWriter, and the log is only emptied after
+     * that, so stopping part way through loses nothing.
+     * @param entries every entry in the journal
+     * @throws IOException writing error
+     */
+    public synchronized void compact(List<Entry> entries) throws IOException {
+        checkOpen();
+
+        AtomicFileWriter file = new AtomicFileWriter(snapshot);
+        try {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(file.getOutputStream()));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            Map<Entry, Long> kept = new IdentityHashMap<>();
+            for (Entry entry : entries) {
+                long id = getId(entry);
+                kept.put(entry, id);
+                writeRecord(out, SAVE, encodeEntry(id, entry));
+            }
+            out.flush();
+            file.commit();
+            ids.keySet().retainAll(kept.keySet());
+        } finally {
+            file.close();
+        }
+        snapshotSize = snapshot.length();
+
+        log.truncate(HEADER_SIZE);
+        log.position(HEADER_SIZE);
+        log.force(true);
+    }
+
+    /**
+     * Closes the log. It can be opened again with open.
+     * @throws IOException if the log doesn't close
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+    }
+
+    /**
+     * Returns the log file
+     * @return path
+     */
+    public File getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the snapshot file
+     * @return snapshot
+     */
+    public File getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the entry's id, giving it a new one if it doesn't have one.
+     */
+    private long getId(Entry entry) {
+        Long id = ids.get(entry);
+        if (id == null) {
+            id = nextId++;
+            ids.put(entry, id);
+        }
+        return id;
+    }
+
+    private void checkOpen() throws IOException {
+        if (log == null) {
+            throw new IOException("ERROR: Journal log is not open: " + path);
+        }
+    }
+
+    private void append(byte type, byte[] payload) throws IOException {
+        checkOpen();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeRecord(out, type, payload);
+        out.close();
+
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        while (record.hasRemaining()) {
+            log.write(record);
+        }
+        log.force(false);
+    }
+
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        return header;
+    }
+
+    /**
+     * Reads the whole of the file into a buffer. The files aren't mapped,
+     * since Windows can't replace or truncate a file that is still mapped,
+     * and compact does both.
+     */
+    private static ByteBuffer readAll(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return readAll(channel);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static ByteBuffer readAll(FileChannel channel) throws IOException {
+        if (channel.size() > Integer.MAX_VALUE) {
+            throw new IOException("ERROR: Journal log is too big to read");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Plays the records back onto the entries, which are kept by their ids,
+     * stopping at the end or at the first damaged record.
+     * @return where the good records end, or -1 if the header is wrong
+     */
+    private static long replay(ByteBuffer in, Map<Long, Entry> entries) {
+        if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC || in.getInt() != VERSION) {
+            return -1;
+        }
+
+        CRC32 crc = new CRC32();
+        while (in.remaining() >= 8) {
+            int start = in.position();
+            int length = in.getInt();
+            int checksum = in.getInt();
+            if (length < 1 || length > in.remaining()) {
+                return start;
+            }
+
+            byte[] record = new byte[length];
+            in.get(record);
+            crc.reset();
+            crc.update(record, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                return start;
+            }
+
+            try {
+                ByteBuffer payload = ByteBuffer.wrap(record, 1, length - 1);
+                if (record[0] == SAVE) {
+                    long id = payload.getLong();
+                    entries.put(id, decodeEntry(payload));
+                } else if (record[0] == DELETE) {
+                    entries.remove(payload.getLong());
+                } else {
+                    return start;
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException ex) {
+                return start;
+            }
+        }
+        return in.position();
+    }
+
+    private static void writeRecord(DataOutputStream out, byte type, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload, 0, payload.length);
+
+        out.writeInt(payload.length + 1);
+        out.writeInt((int) crc.getValue());
+        out.writeByte(type);
+        out.write(payload);
+    }
+
+    private static byte[] encodeEntry(long id, Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(entry.getText().length() + 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeLong(id);
+        writeString(out, entry.getDate());
+        writeString(out, entry.getText());
+        out.writeInt(entry.getScriptureList().size());
+        for (Scripture scripture : entry.getScriptureList()) {
+            writeString(out, scripture.getBookName());
+            writeString(out, scripture.getChapter());
+            writeString(out, scripture.getStartVerse());
+            writeString(out, scripture.getEndVerse());
+        }
+        out.writeInt(entry.getTopicsList().size());
+        for (String topic : entry.getTopicsList()) {
+            writeString(out, topic);
+        }
+
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static Entry decodeEntry(ByteBuffer in) {
+        Entry entry = new Entry();
+        entry.setDate(readString(in));
+        entry.setText(readString(in));
+
+        int scriptures = readCount(in);
+        for (int i = 0; i < scriptures; ++i) {
+            entry.addScripture(new Scripture(readString(in), readString(in),
+                                             readString(in), readString(in)));
+        }
+        int topics = readCount(in);
+        for (int i = 0; i < topics; ++i) {
+            entry.addTopic(readString(in));
+        }
+        return entry;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[readCount(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readCount(ByteBuffer in) {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining()) {
+            throw new IllegalArgumentException("Damaged record");
+        }
+        return count;
+    }
+}
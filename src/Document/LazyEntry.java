@@ -0,0 +1,85 @@
+package Document;
+
+import java.io.IOException;
+
+/**
+ * An entry read from a binary journal whose text stays in the file until it
+ * is asked for. The date, scriptures and topics are there right away, which
+ * is all the journal viewers need, and the text is only read the first
+ * time getText is called (like when its tab is opened).
+ * @author Grant
+ */
+public class LazyEntry extends Entry {
+    private BinaryJournal.Body body;
+    private final long offset;
+    private final int length;
+
+    /**
+     * Constructs an entry whose text is length bytes of UTF-8 at offset in
+     * the body. The body must already count this entry (see Body.retain).
+     * @param body the body region of the journal
+     * @param offset where the text starts in the body
+     * @param length how many bytes the text is
+     */
+    LazyEntry(BinaryJournal.Body body, long offset, int length) {
+        this.body = body;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Returns the text, reading it from the journal the first time.
+     * @return text
+     * @throws IllegalStateException if the text can't be read from the journal
+     */
+    @Override
+    public synchronized String getText() {
+        if (body != null) {
+            try {
+                text = body.read(offset, length);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+            body = null;
+        }
+        return text;
+    }
+
+    /**
+     * Returns a copy of the entry. If the text hasn't been read yet, the copy
+     * reads it from the same place in the journal, so copying never reads it.
+     * @return the copy
+     */
+    @Override
+    public synchronized Entry copy() {
+        if (body == null) {
+            return super.copy();
+        }
+        body.retain();
+        LazyEntry copy = new LazyEntry(body, offset, length);
+        copyReferencesTo(copy);
+        return copy;
+    }
+
+    /**
+     * Sets the text to the new text. The text in the journal is never read
+     * after this.
+     * @param text the new text
+     */
+    @Override
+    public synchronized void setText(String text) {
+        if (body != null) {
+            body.release();
+            body = null;
+        }
+        super.setText(text);
+    }
+
+    /**
+     * Returns true if the text has been read from the journal or set.
+     * @return true or false
+     */
+    public synchronized boolean isTextLoaded() {
+        return body == null;
+    }
+}
@@ -1,130 +1,631 @@
-package Document;
-
-import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-
-/**
- * Stores all necessary functions and data to save and read in a text document
- * with entries present.
- * @author Grant
- */
-public class TextFile {
-    List <Entry> entries = new ArrayList<>();
-    File path;
-    String text = "";
-
-    /**
-     * Constructs a TextFile based of the File given to it.
-     * @param path 
-     */
-    public TextFile(File path) {
-        this.path = path;
-    }
-    
-    /**
-     * Saves the file as a .txt document. If there are no entries to save, it will
-     * throw an IOException.
-     * @exception IOException throws when BufferedOutputStream has trouble or
-     *                        when there are no entries.
-     */
-    public void save() throws IOException{
-        if (entries.size() > 0) {
-            BufferedOutputStream output = new BufferedOutputStream(new FileOutputStream(path));
-            for (Entry entry : entries) {
-                String content = "-----\n";
-                byte[] data = content.getBytes();
-                output.write(data, 0, data.length);
-                
-                content = entry.getDate() + "\n";
-                data = content.getBytes();
-                output.write(data, 0, data.length);
-                
-                content = entry.getText() + "\n";
-                data = content.getBytes();
-                output.write(data, 0, data.length);
-            }
-            output.close();
-        } else {
-            throw new IOException("ERROR: No entries to save.");
-        }
-    }
-    
-    /**
-     * Reads in the .txt file.
-     * @return true if read correctly
-     * @throws java.io.FileNotFoundException File's not found
-     * @throws java.io.IOException Trouble reading file
-     */
-    public boolean readFile() throws FileNotFoundException, IOException {
-        boolean read = false;
-        BufferedReader bf = null;
-        try {
-            bf = new BufferedReader(new FileReader(path));
-            String line = "";
-            while ((line = bf.readLine()) != null) {
-                text += line + "\n";
-            }
-            read = true;
-        } finally {
-            if (bf != null) {
-                bf.close();
-            }
-        }
-        return read;
-    }
-
-    /**
-     * Returns the File of the TextDoc
-     * @return path
-     */
-    public File getPath() {
-        return path;
-    }
-
-    /**
-     * Sets a new File for the TextDoc
-     * @param path the new File of the TextDoc
-     */
-    public void setPath(File path) {
-        this.path = path;
-    }
-
-    /**
-     * Returns the content of the TextDoc
-     * @return text
-     */
-    public String getText() {
-        return text;
-    }
-
-    /**
-     * Sets the content of the TextDoc
-     * @param text the new content of the TextDoc.
-     */
-    public void setText(String text) {
-        this.text = text;
-    }
-
-    /**
-     * Returns the entries list.
-     * @return entries
-     */
-    public List<Entry> getEntries() {
-        return entries;
-    }
-    
-    /**
-     * Sets the entries of the TextDoc.
-     * @param entries the new entries of the TextDoc.
-     */
-    public void setEntries(List<Entry> entries) {
-        this.entries = entries;
-    }
+package Document;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Stores all necessary functions and data to save and read in a text document
+ * with entries present.
+ * <p>
+ * Each entry in the document is a line of "-----", a line with the date, and
+ * then the lines of its text. readEntries reads the file a line at a time and
+ * hands over each entry as soon as the next one starts, so only one entry is
+ * held at a time no matter how big the file is.
+ * <p>
+ * Very large files can also be read on a fork-join pool. The file is memory
+ * mapped, the separators are found by searching pieces of the file at the
+ * same time, and then the entries are parsed at the same time. The entries
+ * come back in the same order, and the same, as reading them a line at a time.
+ * <p>
+ * Text documents are always written in UTF-8, whatever the platform's
+ * charset is. They are read in UTF-8 too, unless the file isn't valid UTF-8;
+ * then it was written before that, in the platform's charset, and is read
+ * in that.
+ * @author Grant
+ */
+public class TextFile {
+    private static final byte[] SEPARATOR = {'-', '-', '-', '-', '-'};
+    private static final int CHAR_BUFFER_SIZE = 8 * 1024;
+    private static final int BYTE_BUFFER_SIZE = 256 * 1024;
+    
+    List <Entry> entries = new ArrayList<>();
+    File path;
+    String text = "";
+    int backups;
+
+    /**
+     * Constructs a TextFile based of the File given to it.
+     * @param path 
+     */
+    public TextFile(File path) {
+        this.path = path;
+    }
+    
+    /**
+     * Saves the file as a .txt document. If there are no entries to save, it will
+     * throw an IOException. The entries are encoded into one buffer, which
+     * is written to the file each time it fills up. The file is replaced
+     * only once everything is written (see AtomicFileWriter).
+     * @exception IOException throws when the file can't be written or
+     *                        when there are no entries.
+     */
+    public void save() throws IOException{
+        if (entries.size() > 0) {
+            AtomicFileWriter file = new AtomicFileWriter(path, backups);
+            try {
+                Utf8Output output = new Utf8Output(file.getChannel());
+                for (Entry entry : entries) {
+                    output.write("-----\n");
+                    output.write(String.valueOf(entry.getDate()));
+                    output.write("\n");
+                    output.write(String.valueOf(entry.getText()));
+                    output.write("\n");
+                }
+                output.flush();
+                file.commit();
+            } finally {
+                file.close();
+            }
+        } else {
+            throw new IOException("ERROR: No entries to save.");
+        }
+    }
+    
+    /**
+     * Reads in the .txt file.
+     * @return true if read correctly
+     * @throws java.io.FileNotFoundException File's not found
+     * @throws java.io.IOException Trouble reading file
+     */
+    public boolean readFile() throws FileNotFoundException, IOException {
+        boolean read = false;
+        BufferedReader bf = null;
+        try {
+            bf = openReader();
+            StringBuilder builder = new StringBuilder();
+            String line = "";
+            while ((line = bf.readLine()) != null) {
+                builder.append(line).append('\n');
+            }
+            text = builder.toString();
+            read = true;
+        } finally {
+            if (bf != null) {
+                bf.close();
+            }
+        }
+        return read;
+    }
+    
+    /**
+     * Reads the .txt file a line at a time and gives each entry to the
+     * handler as soon as it has been read.
+     * @param handler gets each entry
+     * @throws FileNotFoundException File's not found
+     * @throws IOException Trouble reading file, or the handler stopped the reading
+     */
+    public void readEntries(EntryHandler handler) throws FileNotFoundException, IOException {
+        parseEntries(openReader(), handler);
+    }
+    
+    /**
+     * Reads the .txt file a line at a time and returns the entries in it.
+     * @return the entries in the file
+     * @throws FileNotFoundException File's not found
+     * @throws IOException Trouble reading file
+     */
+    public List<Entry> readEntries() throws FileNotFoundException, IOException {
+        return collect(openReader());
+    }
+    
+    /**
+     * Memory maps the .txt file and reads its entries on the pool. The
+     * handler, if there is one, is given each entry on the pool as soon as it
+     * is parsed, so it can do more work on the entry in the same pass; it is
+     * called from many threads at once and in no particular order.
+     * <p>
+     * Files too big to map in one piece are read a line at a time instead,
+     * and so is every file when the pool only has one thread, since mapping
+     * only pays off when the pieces really are worked on at the same time.
+     * @param pool the pool to do the work on
+     * @param handler gets each entry on the pool, or null
+     * @return the entries in the file, in order
+     * @throws IOException Trouble reading file, or the handler stopped the reading
+     */
+    public List<Entry> readEntries(ForkJoinPool pool, final EntryHandler handler) throws IOException {
+        ByteBuffer file;
+        FileChannel channel = FileChannel.open(path.toPath(), StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE || pool.getParallelism() < 2) {
+                final List<Entry> entryList = new ArrayList<>();
+                readEntries(new EntryHandler() {
+                    @Override
+                    public void handle(Entry entry) throws IOException {
+                        if (handler != null) {
+                            handler.handle(entry);
+                        }
+                        entryList.add(entry);
+                    }
+                });
+                return entryList;
+            }
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            channel.close();
+        }
+        
+        Charset charset = isUtf8(file.duplicate(), true) ? StandardCharsets.UTF_8 : Charset.defaultCharset();
+        int[] separators = findSeparators(file, pool.invoke(new SeparatorTask(file, 0, file.limit())));
+        Entry[] parsed = new Entry[separators.length];
+        
+        try {
+            if (separators.length > 0) {
+                pool.invoke(new ParseTask(file, charset, separators, parsed, 0, separators.length, handler));
+            }
+        } catch (RuntimeException ex) {
+            // The handler's IOException was wrapped to get it out of the pool.
+            for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+            }
+            throw ex;
+        }
+        
+        List<Entry> entryList = new ArrayList<>(parsed.length);
+        for (Entry entry : parsed) {
+            if (entry != null) {
+                entryList.add(entry);
+            }
+        }
+        return entryList;
+    }
+    
+    /**
+     * Picks out the real separators from every "-----" line. The line after a
+     * separator is always a date, even if it is "-----" too.
+     * @param file the mapped file
+     * @param candidates where every "-----" line starts, in order
+     * @return where every separator starts, in order
+     */
+    private static int[] findSeparators(ByteBuffer file, int[] candidates) {
+        int[] separators = new int[candidates.length];
+        int count = 0;
+        int dateLine = -1;
+        
+        for (int candidate : candidates) {
+            if (candidate != dateLine) {
+                separators[count++] = candidate;
+                dateLine = nextLine(file, candidate + SEPARATOR.length);
+            }
+        }
+        return Arrays.copyOf(separators, count);
+    }
+    
+    /**
+     * Returns where the next line starts, given where the line ending is.
+     */
+    private static int nextLine(ByteBuffer file, int lineEnd) {
+        if (lineEnd < file.limit() && file.get(lineEnd) == '\r') {
+            ++lineEnd;
+            if (lineEnd < file.limit() && file.get(lineEnd) == '\n') {
+                ++lineEnd;
+            }
+        } else if (lineEnd < file.limit()) {
+            ++lineEnd;
+        }
+        return lineEnd;
+    }
+    
+    /**
+     * Returns true if a "-----" line starts at the position. Lines end with
+     * \n, \r, or \r\n, like readLine.
+     */
+    private static boolean isSeparator(ByteBuffer file, int position) {
+        if (position > 0 && file.get(position - 1) != '\n' && file.get(position - 1) != '\r') {
+            return false;
+        }
+        
+        int end = position + SEPARATOR.length;
+        if (end > file.limit()) {
+            return false;
+        }
+        for (int i = 0; i < SEPARATOR.length; ++i) {
+            if (file.get(position + i) != SEPARATOR[i]) {
+                return false;
+            }
+        }
+        return end == file.limit() || file.get(end) == '\n' || file.get(end) == '\r';
+    }
+    
+    /**
+     * Returns the entries in the text that readFile read in.
+     * @return the entries in text
+     * @throws IOException Trouble reading the text
+     */
+    public List<Entry> parseText() throws IOException {
+        return collect(new BufferedReader(new StringReader(text)));
+    }
+    
+    private BufferedReader openReader() throws FileNotFoundException, IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(path), getCharset()));
+    }
+    
+    /**
+     * Returns the charset the file is in: UTF-8 if all of it is valid
+     * UTF-8, and the platform's charset if not. The file is read through a
+     * buffer, so it is never all held in memory.
+     */
+    private Charset getCharset() throws IOException {
+        FileChannel channel = FileChannel.open(path.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer bytes = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+            CharsetDecoder decoder = newUtf8Decoder();
+            CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+            boolean end = false;
+            while (!end) {
+                end = channel.read(bytes) < 0;
+                bytes.flip();
+                if (!isUtf8(decoder, bytes, chars, end)) {
+                    return Charset.defaultCharset();
+                }
+                bytes.compact();
+            }
+            return StandardCharsets.UTF_8;
+        } finally {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Returns true if all of the bytes are valid UTF-8.
+     */
+    private static boolean isUtf8(ByteBuffer bytes, boolean end) {
+        return isUtf8(newUtf8Decoder(), bytes, CharBuffer.allocate(CHAR_BUFFER_SIZE), end);
+    }
+    
+    /**
+     * Decodes as many of the bytes as it can, throwing away the characters,
+     * and returns false if they aren't valid UTF-8. Unless it is the end, the
+     * bytes of a character cut off at the end of the buffer are left in it.
+     */
+    private static boolean isUtf8(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer chars, boolean end) {
+        CoderResult result;
+        do {
+            chars.clear();
+            result = decoder.decode(bytes, chars, end);
+        } while (result.isOverflow());
+        return !result.isError();
+    }
+    
+    private static CharsetDecoder newUtf8Decoder() {
+        return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+    }
+    
+    private static List<Entry> collect(BufferedReader bf) throws IOException {
+        final List<Entry> entryList = new ArrayList<>();
+        parseEntries(bf, new EntryHandler() {
+            @Override
+            public void handle(Entry entry) {
+                entryList.add(entry);
+            }
+        });
+        return entryList;
+    }
+    
+    /**
+     * Parses entries out of the lines of the reader, which is closed when
+     * done. Anything before the first "-----" isn't part of an entry. The
+     * text of an entry is every line after its date up to the next "-----",
+     * each ending with a new line.
+     * @param bf the lines to parse
+     * @param handler gets each entry
+     * @throws IOException reading error
+     */
+    private static void parseEntries(BufferedReader bf, EntryHandler handler) throws IOException {
+        try {
+            StringBuilder content = new StringBuilder();
+            String date = null;
+            String line;
+            
+            while ((line = bf.readLine()) != null) {
+                if (line.equals("-----")) {
+                    if (date != null) {
+                        handler.handle(createEntry(date, content));
+                    }
+                    
+                    // The line after the separator is always the date.
+                    date = bf.readLine();
+                    content.setLength(0);
+                } else if (date != null) {
+                    content.append(line).append('\n');
+                }
+            }
+            
+            if (date != null) {
+                handler.handle(createEntry(date, content));
+            }
+        } finally {
+            bf.close();
+        }
+    }
+    
+    private static Entry createEntry(String date, StringBuilder content) {
+        Entry entry = new Entry();
+        entry.setDate(date);
+        entry.setText(content.toString());
+        return entry;
+    }
+    
+    /**
+     * Finds where every "-----" line starts in a range of the file, splitting
+     * the range up when it is too big.
+     */
+    private static class SeparatorTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 1024 * 1024;
+        
+        private final ByteBuffer file;
+        private final int start;
+        private final int end;
+        
+        SeparatorTask(ByteBuffer file, int start, int end) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+        
+        @Override
+        protected int[] compute() {
+            if (end - start <= THRESHOLD) {
+                // Copying the range out in one go is much faster than
+                // reading the mapped file a byte at a time.
+                byte[] bytes = new byte[end - start];
+                ByteBuffer range = file.duplicate();
+                range.position(start);
+                range.get(bytes);
+                
+                int[] found = new int[16];
+                int count = 0;
+                for (int i = 0; i < bytes.length; ++i) {
+                    if (bytes[i] == '-' && isSeparator(file, start + i)) {
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, count * 2);
+                        }
+                        found[count++] = start + i;
+                    }
+                }
+                return Arrays.copyOf(found, count);
+            }
+            
+            int middle = (start + end) >>> 1;
+            SeparatorTask right = new SeparatorTask(file, middle, end);
+            right.fork();
+            int[] left = new SeparatorTask(file, start, middle).compute();
+            int[] rightFound = right.join();
+            
+            int[] found = Arrays.copyOf(left, left.length + rightFound.length);
+            System.arraycopy(rightFound, 0, found, left.length, rightFound.length);
+            return found;
+        }
+    }
+    
+    /**
+     * Parses the entries that start at a range of the separators, splitting
+     * the range up when it is too big. Each entry runs from its separator up
+     * to the next one and is parsed the same way as a line at a time, so the
+     * n-th entry parsed in a range belongs to the n-th separator.
+     */
+    private static class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 32;
+        
+        private final ByteBuffer file;
+        private final Charset charset;
+        private final int[] separators;
+        private final Entry[] parsed;
+        private final int start;
+        private final int end;
+        private final EntryHandler handler;
+        
+        ParseTask(ByteBuffer file, Charset charset, int[] separators, Entry[] parsed, int start, int end,
+                  EntryHandler handler) {
+            this.file = file;
+            this.charset = charset;
+            this.separators = separators;
+            this.parsed = parsed;
+            this.start = start;
+            this.end = end;
+            this.handler = handler;
+        }
+        
+        @Override
+        protected void compute() {
+            if (end - start > THRESHOLD) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new ParseTask(file, charset, separators, parsed, start, middle, handler),
+                          new ParseTask(file, charset, separators, parsed, middle, end, handler));
+                return;
+            }
+            
+            // Every entry in the range is parsed from one piece of text.
+            ByteBuffer chunk = file.duplicate();
+            chunk.limit(end < separators.length ? separators[end] : file.limit());
+            chunk.position(separators[start]);
+            
+            // Decoding from an array is much faster than from the mapped file.
+            byte[] bytes = new byte[chunk.remaining()];
+            chunk.get(bytes);
+            
+            try {
+                String text = new String(bytes, charset);
+                
+                parseEntries(new BufferedReader(new StringReader(text)), new EntryHandler() {
+                    private int index = start;
+                    
+                    @Override
+                    public void handle(Entry entry) throws IOException {
+                        if (handler != null) {
+                            handler.handle(entry);
+                        }
+                        parsed[index++] = entry;
+                    }
+                });
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    /**
+     * Returns the File of the TextDoc
+     * @return path
+     */
+    public File getPath() {
+        return path;
+    }
+
+    /**
+     * Sets a new File for the TextDoc
+     * @param path the new File of the TextDoc
+     */
+    public void setPath(File path) {
+        this.path = path;
+    }
+
+    /**
+     * Returns the content of the TextDoc
+     * @return text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Sets the content of the TextDoc
+     * @param text the new content of the TextDoc.
+     */
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Returns the entries list.
+     * @return entries
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+    
+    /**
+     * Sets the entries of the TextDoc.
+     * @param entries the new entries of the TextDoc.
+     */
+    public void setEntries(List<Entry> entries) {
+        this.entries = entries;
+    }
+    
+    /**
+     * Returns how many old versions of the file are kept when saving.
+     * @return backups
+     */
+    public int getBackups() {
+        return backups;
+    }
+    
+    /**
+     * Sets how many old versions of the file are kept when saving.
+     * @param backups the number of backups, or 0 for none
+     */
+    public void setBackups(int backups) {
+        this.backups = backups;
+    }
+    
+    /**
+     * Encodes text as UTF-8 into a byte buffer and writes the buffer to a
+     * channel whenever it is full. Text is copied into a char buffer a piece
+     * at a time first, since the encoder is much faster on arrays than on a
+     * String. Both buffers are reused for everything written.
+     */
+    private static class Utf8Output {
+        private final FileChannel channel;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+        private final ByteBuffer bytes = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+        
+        Utf8Output(FileChannel channel) {
+            this.channel = channel;
+        }
+        
+        /**
+         * Encodes the text into the byte buffer.
+         * @param text the text to write
+         * @throws IOException writing error
+         */
+        void write(String text) throws IOException {
+            encoder.reset();
+            int offset = 0;
+            boolean endOfInput = false;
+            
+            while (!endOfInput) {
+                // A high surrogate can be left over from the last piece.
+                int count = Math.min(chars.remaining(), text.length() - offset);
+                text.getChars(offset, offset + count, chars.array(), chars.position());
+                chars.position(chars.position() + count);
+                offset += count;
+                endOfInput = offset == text.length();
+                
+                chars.flip();
+                while (encoder.encode(chars, bytes, endOfInput).isOverflow()) {
+                    drain();
+                }
+                chars.compact();
+            }
+            
+            while (encoder.flush(bytes).isOverflow()) {
+                drain();
+            }
+        }
+        
+        /**
+         * Writes whatever is left in the byte buffer.
+         * @throws IOException writing error
+         */
+        void flush() throws IOException {
+            drain();
+        }
+        
+        private void drain() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            bytes.clear();
+        }
+    }
 }
\ No newline at end of file
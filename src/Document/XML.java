@@ -1,186 +1,402 @@
-package Document;
-
-import java.io.File;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Result;
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-/**
- * Stores data about an XML file and how to save and read and parse a XML file.
- * @author Grant
- */
-public class XML {
-    private Document document;
-    private File path;
-    
-    /**
-     * Constructs a XML file from the File given.
-     * @param path 
-     */
-    public XML(File path) {
-        this.path = path;
-    }
-    
-    /**
-     * This will write the information in the text variable to a XML document
-     * in the specific format specified.
-     * @throws javax.xml.transform.TransformerException If the transformation process
-     *                                                  fails.
-     */
-    public void save() throws TransformerException {
-        Source source = new DOMSource(document);
-        Result result = new StreamResult(path);
-            
-        Transformer trans = TransformerFactory.newInstance().newTransformer();
-        trans.transform(source, result);
-    }
-    
-    /**
-     * This knows how to read a XML document and store the information properly.
-     * @return true if read correctly.
-     * @throws org.xml.sax.SAXException parsing error 
-     * @throws java.io.IOException building error
-     * @throws javax.xml.parsers.ParserConfigurationException parsing error 
-     */
-    public boolean readFile() throws SAXException, IOException, ParserConfigurationException {
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        DocumentBuilder db = dbf.newDocumentBuilder();
-        document = db.parse(path.getAbsolutePath());
-        return true;
-    }
-    
-    /**
-     * This is used to be able to gather all the necessary data from the xml
-     * file provided and put them in entries.
-     * @return returns the list of entries found in the xml file.
-     */
-    public List parseXML() {
-        // Get node list of all the entry nodes within the document.
-        List<Entry> entryList = new ArrayList<>();
-        document.getDocumentElement().normalize();
-        Node journal = document.getDocumentElement();
-        NodeList entryNodes = document.getElementsByTagName("entry");
-        
-        // Gather the information from each entry node and add them to the list.
-        for (int i = 0; i < entryNodes.getLength(); ++i) {
-            Entry newEntry = new Entry();
-            
-            NamedNodeMap attributes = entryNodes.item(i).getAttributes();
-            
-            if (attributes != null && attributes.getNamedItem("date") != null) {
-                newEntry.setDate(attributes.getNamedItem("date").getNodeValue());
-            }
-            
-            NodeList nodes = entryNodes.item(i).getChildNodes();
-            newEntry = parseNodes(nodes, newEntry);
-            entryList.add(newEntry);
-        }
-        
-        return entryList;
-    }
-    
-    /**
-     * PARSE_NODES:
-     *     This will parse the nodes that are given to find the scripture, topic,
-     *   and content nodes.
-     * @param nodes the NodeList that will be looped through.
-     * @param newEntry the entry that will be edited
-     * @return return the newEntry
-     */
-    private Entry parseNodes(NodeList nodes, Entry newEntry) {
-        String content = "";
-        
-        // Loop through all the nodes and find scriptures, topics, and content
-        for (int j = 0; j < nodes.getLength(); ++j) {
-            switch (nodes.item(j).getNodeName()) {
-                case "scripture":
-                    NamedNodeMap attributes = nodes.item(j).getAttributes();
-                    Scripture scripture = createScriptureFromNode(attributes);
-                    newEntry.addScripture(scripture);
-                    break;
-                case "topic":
-                    newEntry.addTopic(nodes.item(j).getTextContent());
-                    break;
-                case "content":
-                    content = nodes.item(j).getTextContent().trim(); 
-                    
-                    // Wraps the text nicely
-                    int length = content.length() / 120;
-                    for (int len = 0; len <= length; ++len) {
-                        int index = content.indexOf(" ", (120*(len+1)));
-                        if (index >= 0) {
-                            content = content.substring(0, index) + "\n" + content.substring(index+1, content.length());
-                        }
-                    }
-                    
-                    newEntry.setText(content);
-                    break;
-            }
-        }
-        
-        return newEntry;
-    }
-    
-    /**
-     * From the node given, uses the attributes of that node to create
-     * a scripture node.
-     * @param attributes
-     * @return 
-     */
-    private Scripture createScriptureFromNode(NamedNodeMap attributes) {
-        String book       = "";
-        String chapter    = "";
-        String startVerse = "";
-        String endVerse   = "";
-                    
-        if (attributes != null) {
-            if (attributes.getNamedItem("book") != null) {
-                book = attributes.getNamedItem("book").getNodeValue();
-            } 
-            if (attributes.getNamedItem("chapter") != null) {
-                chapter = attributes.getNamedItem("chapter").getNodeValue();
-            } 
-            if (attributes.getNamedItem("startverse") != null) {
-                startVerse = attributes.getNamedItem("startverse").getNodeValue();
-            } 
-            if (attributes.getNamedItem("endverse") != null) {
-                endVerse = attributes.getNamedItem("endverse").getNodeValue();
-            }
-        }
-                
-        Scripture scripture = new Scripture(book, chapter, startVerse, endVerse);
-        
-        return scripture;
-    }
-    
-    /**
-     * Returns the document that represents the XML file
-     * @return document
-     */
-    public Document getDocument() {
-        return document;
-    }
-    
-    /**
-     * Sets the document that represents the XML file
-     * @param doc the new document
-     */
-    public void setDocument(Document doc) {
-        this.document = doc;
-    }
-}
+package Document;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Stores data about an XML file and how to save and read and parse a XML file.
+ * <p>
+ * A journal can be read two ways. readFile and parseXML load the whole file
+ * into a Document first. readEntries streams through the file instead and
+ * hands over each entry as soon as its end tag is read, so only one entry is
+ * held at a time no matter how big the journal is. Saving works the same
+ * way: save() writes a Document, while save(entries) writes the entries
+ * straight to the file. Either save goes through an AtomicFileWriter, so a
+ * save that fails part way leaves the old file as it was.
+ * @author Grant
+ */
+public class XML {
+    private Document document;
+    private File path;
+    private int backups;
+    
+    /**
+     * Constructs a XML file from the File given.
+     * @param path 
+     */
+    public XML(File path) {
+        this.path = path;
+    }
+    
+    /**
+     * This will write the information in the text variable to a XML document
+     * in the specific format specified.
+     * @throws javax.xml.transform.TransformerException If the transformation process
+     *                                                  fails.
+     */
+    public void save() throws TransformerException {
+        Source source = new DOMSource(document);
+        
+        try {
+            AtomicFileWriter file = new AtomicFileWriter(path, backups);
+            try {
+                Result result = new StreamResult(file.getOutputStream());
+                Transformer trans = TransformerFactory.newInstance().newTransformer();
+                trans.transform(source, result);
+                file.commit();
+            } finally {
+                file.close();
+            }
+        } catch (IOException ex) {
+            throw new TransformerException(ex);
+        }
+    }
+    
+    /**
+     * Writes the entries straight to the XML file without building a
+     * Document. The file has the same layout as one saved from a Document:
+     * a journal element with an entry for each entry, holding its scriptures,
+     * topics, and content.
+     * @param entries the entries to save
+     * @throws IOException writing error
+     * @throws XMLStreamException the XML couldn't be written
+     */
+    public void save(List<Entry> entries) throws IOException, XMLStreamException {
+        AtomicFileWriter file = new AtomicFileWriter(path, backups);
+        try {
+            Writer out = new BufferedWriter(Channels.newWriter(file.getChannel(), "UTF-8"), 64 * 1024);
+            XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeStartElement("journal");
+            
+            for (Entry entry : entries) {
+                writeEntry(writer, entry);
+            }
+            
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.close();
+            out.flush();
+            file.commit();
+        } finally {
+            file.close();
+        }
+    }
+    
+    /**
+     * Writes one entry element. Attributes are written in the order a
+     * Document would write them, and empty ones are left out.
+     */
+    private void writeEntry(XMLStreamWriter writer, Entry entry) throws XMLStreamException {
+        writer.writeStartElement("entry");
+        if (entry.getDate() != null) {
+            writer.writeAttribute("date", entry.getDate());
+        }
+        
+        for (Scripture scripture : entry.getScriptureList()) {
+            writer.writeEmptyElement("scripture");
+            writeAttribute(writer, "book", scripture.getBookName());
+            writeAttribute(writer, "chapter", scripture.getChapter());
+            writeAttribute(writer, "endverse", scripture.getEndVerse());
+            writeAttribute(writer, "startverse", scripture.getStartVerse());
+        }
+        
+        for (String topic : entry.getTopicsList()) {
+            writer.writeStartElement("topic");
+            writer.writeCharacters(topic);
+            writer.writeEndElement();
+        }
+        
+        writer.writeStartElement("content");
+        writer.writeCharacters(entry.getText());
+        writer.writeEndElement();
+        
+        writer.writeEndElement();
+    }
+    
+    private static void writeAttribute(XMLStreamWriter writer, String name, String value)
+            throws XMLStreamException {
+        if (!value.equals("")) {
+            writer.writeAttribute(name, value);
+        }
+    }
+    
+    /**
+     * This knows how to read a XML document and store the information properly.
+     * @return true if read correctly.
+     * @throws org.xml.sax.SAXException parsing error 
+     * @throws java.io.IOException building error
+     * @throws javax.xml.parsers.ParserConfigurationException parsing error 
+     */
+    public boolean readFile() throws SAXException, IOException, ParserConfigurationException {
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        DocumentBuilder db = dbf.newDocumentBuilder();
+        document = db.parse(path.getAbsolutePath());
+        return true;
+    }
+    
+    /**
+     * Streams through the XML file and gives each entry to the handler as
+     * soon as it has been read. Nothing is kept once the handler is done
+     * with an entry.
+     * @param handler gets each entry
+     * @throws IOException reading error, or the handler stopped the reading
+     * @throws XMLStreamException the file isn't well formed
+     */
+    public void readEntries(EntryHandler handler) throws IOException, XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        
+        InputStream in = new BufferedInputStream(new FileInputStream(path));
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                readEntries(reader, handler);
+            } finally {
+                reader.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+    
+    /**
+     * Streams through the XML file and returns the entries in it, without
+     * building a Document.
+     * @return the entries in the file
+     * @throws IOException reading error
+     * @throws XMLStreamException the file isn't well formed
+     */
+    public List<Entry> readEntries() throws IOException, XMLStreamException {
+        final List<Entry> entryList = new ArrayList<>();
+        readEntries(new EntryHandler() {
+            @Override
+            public void handle(Entry entry) {
+                entryList.add(entry);
+            }
+        });
+        return entryList;
+    }
+    
+    /**
+     * Reads entries until the end of the document. Only the scripture, topic
+     * and content elements directly in an entry are looked at, like parseNodes.
+     */
+    private void readEntries(XMLStreamReader reader, EntryHandler handler)
+            throws IOException, XMLStreamException {
+        Entry newEntry = null;
+        int depth = 0;
+        
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    ++depth;
+                    if (reader.getLocalName().equals("entry")) {
+                        newEntry = new Entry();
+                        newEntry.setDate(reader.getAttributeValue(null, "date"));
+                        depth = 0;
+                    } else if (newEntry != null && depth == 1) {
+                        // getElementText reads through the end tag.
+                        if (readChild(reader, newEntry)) {
+                            --depth;
+                        }
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    --depth;
+                    if (newEntry != null && reader.getLocalName().equals("entry")) {
+                        handler.handle(newEntry);
+                        newEntry = null;
+                    }
+                    break;
+            }
+        }
+    }
+    
+    /**
+     * Reads a scripture, topic, or content element into the entry.
+     * @return true if the element's end tag was read too
+     */
+    private boolean readChild(XMLStreamReader reader, Entry newEntry) throws XMLStreamException {
+        switch (reader.getLocalName()) {
+            case "scripture":
+                newEntry.addScripture(new Scripture(getAttribute(reader, "book"),
+                                                    getAttribute(reader, "chapter"),
+                                                    getAttribute(reader, "startverse"),
+                                                    getAttribute(reader, "endverse")));
+                return false;
+            case "topic":
+                newEntry.addTopic(reader.getElementText());
+                return true;
+            case "content":
+                newEntry.setText(reader.getElementText());
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    private static String getAttribute(XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        return value == null ? "" : value;
+    }
+    
+    /**
+     * This is used to be able to gather all the necessary data from the xml
+     * file provided and put them in entries.
+     * @return returns the list of entries found in the xml file.
+     */
+    public List parseXML() {
+        // Get node list of all the entry nodes within the document.
+        List<Entry> entryList = new ArrayList<>();
+        document.getDocumentElement().normalize();
+        Node journal = document.getDocumentElement();
+        NodeList entryNodes = document.getElementsByTagName("entry");
+        
+        // Gather the information from each entry node and add them to the list.
+        for (int i = 0; i < entryNodes.getLength(); ++i) {
+            Entry newEntry = new Entry();
+            
+            NamedNodeMap attributes = entryNodes.item(i).getAttributes();
+            
+            if (attributes != null && attributes.getNamedItem("date") != null) {
+                newEntry.setDate(attributes.getNamedItem("date").getNodeValue());
+            }
+            
+            NodeList nodes = entryNodes.item(i).getChildNodes();
+            newEntry = parseNodes(nodes, newEntry);
+            entryList.add(newEntry);
+        }
+        
+        return entryList;
+    }
+    
+    /**
+     * PARSE_NODES:
+     *     This will parse the nodes that are given to find the scripture, topic,
+     *   and content nodes.
+     * @param nodes the NodeList that will be looped through.
+     * @param newEntry the entry that will be edited
+     * @return return the newEntry
+     */
+    private Entry parseNodes(NodeList nodes, Entry newEntry) {
+        String content = "";
+        
+        // Loop through all the nodes and find scriptures, topics, and content
+        for (int j = 0; j < nodes.getLength(); ++j) {
+            switch (nodes.item(j).getNodeName()) {
+                case "scripture":
+                    NamedNodeMap attributes = nodes.item(j).getAttributes();
+                    Scripture scripture = createScriptureFromNode(attributes);
+                    newEntry.addScripture(scripture);
+                    break;
+                case "topic":
+                    newEntry.addTopic(nodes.item(j).getTextContent());
+                    break;
+                case "content":
+                    // The text is kept as written; the viewer wraps it.
+                    content = nodes.item(j).getTextContent();
+                    newEntry.setText(content);
+                    break;
+            }
+        }
+        
+        return newEntry;
+    }
+    
+    
+    /**
+     * From the node given, uses the attributes of that node to create
+     * a scripture node.
+     * @param attributes
+     * @return 
+     */
+    private Scripture createScriptureFromNode(NamedNodeMap attributes) {
+        String book       = "";
+        String chapter    = "";
+        String startVerse = "";
+        String endVerse   = "";
+                    
+        if (attributes != null) {
+            if (attributes.getNamedItem("book") != null) {
+                book = attributes.getNamedItem("book").getNodeValue();
+            } 
+            if (attributes.getNamedItem("chapter") != null) {
+                chapter = attributes.getNamedItem("chapter").getNodeValue();
+            } 
+            if (attributes.getNamedItem("startverse") != null) {
+                startVerse = attributes.getNamedItem("startverse").getNodeValue();
+            } 
+            if (attributes.getNamedItem("endverse") != null) {
+                endVerse = attributes.getNamedItem("endverse").getNodeValue();
+            }
+        }
+                
+        Scripture scripture = new Scripture(book, chapter, startVerse, endVerse);
+        
+        return scripture;
+    }
+    
+    /**
+     * Returns the document that represents the XML file
+     * @return document
+     */
+    public Document getDocument() {
+        return document;
+    }
+    
+    /**
+     * Sets the document that represents the XML file
+     * @param doc the new document
+     */
+    public void setDocument(Document doc) {
+        this.document = doc;
+    }
+    
+    /**
+     * Returns how many old versions of the file are kept when saving
+     * @return backups
+     */
+    public int getBackups() {
+        return backups;
+    }
+    
+    /**
+     * Sets how many old versions of the file are kept when saving
+     * @param backups the number of backups, or 0 for none
+     */
+    public void setBackups(int backups) {
+        this.backups = backups;
+    }
+}
@@ -0,0 +1,354 @@
+package JournalMain;
+
+import Document.BinaryJournal;
+import Document.Entry;
+import Document.XML;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Saves the journal in the background, so a save never holds up the thread
+ * the journal is edited on. Changes are marked with markDirty. The first
+ * change starts a short wait, and every change made during the wait goes out
+ * in the same save, so a burst of edits is one save and no edit waits longer
+ * than the delay to be saved.
+ * <p>
+ * The entries belong to the thread they are edited on (the JavaFX thread in
+ * the GUI), so the saver never reads them directly. When a save starts, the
+ * list is copied on that thread. Only the entries that changed since the
+ * last save are copied again (see Entry.getVersion); the copies of the rest
+ * are used again, since nothing changes a copy once it is made. The copy is
+ * then written on the saver's own thread while the edits go on. There is
+ * only ever one save running.
+ * @author Grant
+ */
+public class AutosaveService implements Closeable {
+    /**
+     * How long a change waits for others before it is saved, by default.
+     */
+    public static final long DEFAULT_DELAY_MILLIS = 2000;
+
+    private final Journal journal;
+    private final Executor modelThread;
+    private final long delayMillis;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService writer;
+
+    private Target target;
+    private ScheduledFuture<?> pendingSave;
+    private FutureTask<List<Entry>> pendingCopy;
+    private long changes;
+    private long savedChanges;
+    private boolean closed;
+
+    // The entries of the last save and their copies, in the same order. Only
+    // used on the model thread.
+    private List<Entry> copiedEntries = new ArrayList<>();
+    private List<Entry> copies = new ArrayList<>();
+
+    /**
+     * Where the copied entries are written.
+     */
+    public interface Target {
+        /**
+         * Writes the entries. Called on the saver's thread.
+         * @param entries a copy of the journal's entries
+         * @throws IOException writing error
+         */
+        void save(List<Entry> entries) throws IOException;
+    }
+
+    /**
+     * Listens for saves finishing.
+     */
+    public interface Listener {
+        /**
+         * Called on the saver's thread after the entries were written.
+         * @param dirty true if there were more changes after the copy was made
+         */
+        void saved(boolean dirty);
+
+        /**
+         * Called on the saver's thread when a save goes wrong. The changes
+         * stay dirty and are saved with the next change.
+         * @param ex what went wrong
+         */
+        void saveFailed(IOException ex);
+    }
+
+    /**
+     * Constructs a service that saves the journal's entries, copying them on
+     * the given thread.
+     * @param journal the journal to save
+     * @param modelThread runs the copy on the thread the entries are edited on
+     * @param delayMillis how long a change waits for others before it is saved
+     */
+    public AutosaveService(Journal journal, Executor modelThread, long delayMillis) {
+        this.journal = journal;
+        this.modelThread = modelThread;
+        this.delayMillis = delayMillis;
+        writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Journal autosave");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Adds a listener that is told about every save.
+     * @param listener the listener
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Sets where the entries are saved. With no target, changes are still
+     * tracked but nothing is written.
+     * @param target where to save, or null for nowhere
+     */
+    public synchronized void setTarget(Target target) {
+        this.target = target;
+    }
+
+    /**
+     * Marks the entries as changed, so they are saved within the delay.
+     */
+    public synchronized void markDirty() {
+        ++changes;
+        if (pendingSave == null && target != null && !closed) {
+            pendingSave = writer.schedule(new SaveTask(), delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Marks the entries as saved, like after they were read from a file.
+     */
+    public synchronized void markClean() {
+        savedChanges = changes;
+    }
+
+    /**
+     * Returns true if there are changes that haven't been saved.
+     * @return true or false
+     */
+    public synchronized boolean isDirty() {
+        return changes != savedChanges;
+    }
+
+    /**
+     * Saves in the background right away, changed or not.
+     */
+    public synchronized void saveNow() {
+        if (closed) {
+            return;
+        }
+        if (pendingSave != null) {
+            pendingSave.cancel(false);
+        }
+        pendingSave = writer.schedule(new SaveTask(), 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the saver. Call it on the thread the entries are edited on: a
+     * save that is still waiting for its copy is dropped, one that is being
+     * written is finished, and any changes that haven't been saved are then
+     * saved on the calling thread.
+     * @throws IOException if the last save goes wrong
+     */
+    @Override
+    public void close() throws IOException {
+        Target last;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            last = target;
+            if (pendingSave != null) {
+                pendingSave.cancel(false);
+            }
+            // The copy would wait for this thread, which is about to wait for the saver.
+            if (pendingCopy != null) {
+                pendingCopy.cancel(false);
+            }
+        }
+
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (last != null && isDirty()) {
+            long copied;
+            synchronized (this) {
+                copied = changes;
+            }
+            last.save(copyEntries());
+            synchronized (this) {
+                savedChanges = copied;
+            }
+        }
+    }
+
+    /**
+     * Returns a target that saves to the XML file.
+     * @param file the XML file
+     * @return the target
+     */
+    public static Target xmlTarget(final XML file) {
+        return new Target() {
+            @Override
+            public void save(List<Entry> entries) throws IOException {
+                try {
+                    file.save(entries);
+                } catch (XMLStreamException ex) {
+                    throw new IOException("ERROR: Could not write XML file: " + ex.getMessage(), ex);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a target that saves to the binary journal.
+     * @param file the binary journal
+     * @return the target
+     */
+    public static Target binaryTarget(final BinaryJournal file) {
+        return new Target() {
+            @Override
+            public void save(List<Entry> entries) throws IOException {
+                file.save(entries);
+            }
+        };
+    }
+
+    /**
+     * Copies the entries, using the copy from the last save of each entry
+     * that hasn't changed since. The entries are usually where they were
+     * last time, so they are matched up by position first, and only looked
+     * up once one has moved.
+     */
+    private List<Entry> copyEntries() {
+        List<Entry> entries = new ArrayList<>(journal.getEntries());
+        List<Entry> copy = new ArrayList<>(entries.size());
+        Map<Entry, Entry> moved = null;
+        for (int i = 0; i < entries.size(); ++i) {
+            Entry entry = entries.get(i);
+            Entry last;
+            if (i < copiedEntries.size() && copiedEntries.get(i) == entry) {
+                last = copies.get(i);
+            } else {
+                if (moved == null) {
+                    moved = new IdentityHashMap<>(copiedEntries.size());
+                    for (int j = 0; j < copiedEntries.size(); ++j) {
+                        moved.put(copiedEntries.get(j), copies.get(j));
+                    }
+                }
+                last = moved.get(entry);
+            }
+            if (last == null || last.getVersion() != entry.getVersion()) {
+                last = entry.copy();
+            }
+            copy.add(last);
+        }
+        copiedEntries = entries;
+        copies = copy;
+        return copy;
+    }
+
+    /**
+     * Copies the entries on the model thread, which also says which change
+     * the copy goes up to, and writes the copy on the saver's thread.
+     */
+    private class SaveTask implements Runnable {
+        @Override
+        public void run() {
+            final Target saveTo;
+            synchronized (AutosaveService.this) {
+                pendingSave = null;
+                saveTo = target;
+            }
+            if (saveTo == null) {
+                return;
+            }
+
+            final long[] copied = new long[1];
+            FutureTask<List<Entry>> copy = new FutureTask<>(new Callable<List<Entry>>() {
+                @Override
+                public List<Entry> call() {
+                    synchronized (AutosaveService.this) {
+                        copied[0] = changes;
+                    }
+                    return copyEntries();
+                }
+            });
+
+            synchronized (AutosaveService.this) {
+                if (closed) {
+                    return;
+                }
+                pendingCopy = copy;
+            }
+
+            List<Entry> entries;
+            try {
+                modelThread.execute(copy);
+                entries = copy.get();
+            } catch (InterruptedException | CancellationException ex) {
+                // Closed while waiting; close saves whatever is left.
+                return;
+            } catch (ExecutionException ex) {
+                failed(new IOException("ERROR: Could not copy the journal to save it.", ex.getCause()));
+                return;
+            } finally {
+                synchronized (AutosaveService.this) {
+                    pendingCopy = null;
+                }
+            }
+
+            try {
+                saveTo.save(entries);
+            } catch (IOException ex) {
+                failed(ex);
+                return;
+            }
+
+            boolean dirty;
+            synchronized (AutosaveService.this) {
+                savedChanges = Math.max(savedChanges, copied[0]);
+                dirty = changes != savedChanges;
+            }
+            for (Listener listener : listeners) {
+                listener.saved(dirty);
+            }
+        }
+
+        private void failed(IOException ex) {
+            for (Listener listener : listeners) {
+                listener.saveFailed(ex);
+            }
+        }
+    }
+}
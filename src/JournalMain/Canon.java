@@ -0,0 +1,174 @@
+package JournalMain;
+
+import Document.Scripture;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The books of scripture and how many chapters each one has. Every book gets
+ * a dense id (the order it was read in) and the chapter counts are kept in an
+ * int array by id, so checking a reference is a hash lookup and an array read.
+ * @author Grant
+ */
+public class Canon {
+    /**
+     * The id given back for a book that isn't in the canon.
+     */
+    public static final int UNKNOWN_BOOK = -1;
+
+    private final String[] bookNames;
+    private final int[] chapterCounts;
+    private final Map<String, Integer> bookIds;
+
+    /**
+     * Constructs the canon from a list of books, where each chapter is the
+     * number of chapters in that book. Books with a malformed chapter count
+     * are left out, and if a book is given twice the first one is kept.
+     * @param books the books and their chapter counts
+     */
+    public Canon(List<Scripture> books) {
+        List<String> names = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        bookIds = new HashMap<>();
+
+        for (Scripture book : books) {
+            int count = parseNumber(book.getChapter());
+            if (count > 0 && !bookIds.containsKey(book.getBookName())) {
+                bookIds.put(book.getBookName(), names.size());
+                names.add(book.getBookName());
+                counts.add(count);
+            }
+        }
+
+        bookNames = names.toArray(new String[names.size()]);
+        chapterCounts = new int[counts.size()];
+        for (int i = 0; i < chapterCounts.length; ++i) {
+            chapterCounts[i] = counts.get(i);
+        }
+    }
+
+    private Canon(String[] bookNames, int[] chapterCounts) {
+        this.bookNames = bookNames;
+        this.chapterCounts = chapterCounts;
+        bookIds = new HashMap<>();
+        for (int i = 0; i < bookNames.length; ++i) {
+            bookIds.put(bookNames[i], i);
+        }
+    }
+
+    /**
+     * Writes the canon to a vocabulary snapshot.
+     * @param out where to write
+     * @throws IOException writing error
+     */
+    void write(DataOutputStream out) throws IOException {
+        VocabularySnapshot.writeStrings(out, bookNames);
+        VocabularySnapshot.writeInts(out, chapterCounts);
+    }
+
+    /**
+     * Reads a canon written by write.
+     * @param in the snapshot, positioned at the canon
+     * @return the canon
+     */
+    static Canon read(ByteBuffer in) {
+        return new Canon(VocabularySnapshot.readStrings(in), VocabularySnapshot.readInts(in));
+    }
+
+    /**
+     * Returns true if the book has the chapter.
+     * @param bookId id of the book
+     * @param chapter the chapter in question
+     * @return true or false
+     */
+    public boolean isValid(int bookId, int chapter) {
+        return bookId >= 0 && bookId < chapterCounts.length &&
+               chapter >= 1 && chapter <= chapterCounts[bookId];
+    }
+
+    /**
+     * Returns true if the book is in the canon and has the chapter. A chapter
+     * that isn't a number is never valid.
+     * @param bookName name of the book
+     * @param chapter the chapter in question
+     * @return true or false
+     */
+    public boolean isValid(String bookName, String chapter) {
+        return isValid(getBookId(bookName), parseNumber(chapter));
+    }
+
+    /**
+     * Returns the id of the book or UNKNOWN_BOOK.
+     * @param bookName name of the book
+     * @return the book's id
+     */
+    public int getBookId(String bookName) {
+        Integer id = bookIds.get(bookName);
+        return id == null ? UNKNOWN_BOOK : id;
+    }
+
+    /**
+     * Returns the name of the book with the given id.
+     * @param bookId id of the book
+     * @return the book's name
+     */
+    public String getBookName(int bookId) {
+        return bookNames[bookId];
+    }
+
+    /**
+     * Returns how many chapters the book has.
+     * @param bookId id of the book
+     * @return the chapter count
+     */
+    public int getChapterCount(int bookId) {
+        return chapterCounts[bookId];
+    }
+
+    /**
+     * Returns how many books there are.
+     * @return number of books
+     */
+    public int size() {
+        return bookNames.length;
+    }
+
+    /**
+     * Returns the books with their chapter counts, in order of their ids.
+     * @return the books
+     */
+    public List<Scripture> getBooks() {
+        List<Scripture> books = new ArrayList<>();
+        for (int i = 0; i < bookNames.length; ++i) {
+            books.add(new Scripture(bookNames[i], String.valueOf(chapterCounts[i])));
+        }
+        return Collections.unmodifiableList(books);
+    }
+
+    /**
+     * Reads a positive whole number made of plain digits.
+     * @param text the text to read
+     * @return the number, or -1 if the text isn't one
+     */
+    static int parseNumber(String text) {
+        if (text == null || text.isEmpty() || text.length() > 9) {
+            return -1;
+        }
+
+        int number = 0;
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+}
@@ -0,0 +1,178 @@
+package JournalMain;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A trie of words stored in a few flat arrays. Each node's edges are kept
+ * together and sorted by character so a step is a small binary search. Every
+ * node can hold an int value (like a topic or book id) or NONE.
+ * @author Grant
+ */
+class CharTrie {
+    static final int NONE = -1;
+    static final int ROOT = 0;
+
+    // Edges of node n are edgeChars/edgeTargets[firstEdge[n] .. firstEdge[n+1]).
+    final int[] firstEdge;
+    final char[] edgeChars;
+    final int[] edgeTargets;
+    final int[] values;
+    final int[] depths;
+
+    /**
+     * Constructs a trie straight from its arrays.
+     * @param firstEdge where each node's edges start
+     * @param edgeChars the character of each edge
+     * @param edgeTargets the node each edge goes to
+     * @param values the value stored at each node
+     * @param depths the length of the word leading to each node
+     */
+    CharTrie(int[] firstEdge, char[] edgeChars, int[] edgeTargets, int[] values, int[] depths) {
+        this.firstEdge = firstEdge;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.values = values;
+        this.depths = depths;
+    }
+
+    /**
+     * Returns the node reached from the given node with the character, or
+     * NONE if there is no such edge.
+     * @param node the node to step from
+     * @param c the character to step with
+     * @return the next node or NONE
+     */
+    int child(int node, char c) {
+        int low = firstEdge[node];
+        int high = firstEdge[node + 1] - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char edge = edgeChars[middle];
+            if (edge < c) {
+                low = middle + 1;
+            } else if (edge > c) {
+                high = middle - 1;
+            } else {
+                return edgeTargets[middle];
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns the number of nodes in the trie.
+     * @return number of nodes
+     */
+    int size() {
+        return values.length;
+    }
+
+    /**
+     * Writes the trie's arrays to a vocabulary snapshot.
+     * @param out where to write
+     * @throws IOException writing error
+     */
+    void write(DataOutputStream out) throws IOException {
+        VocabularySnapshot.writeInts(out, firstEdge);
+        VocabularySnapshot.writeChars(out, edgeChars);
+        VocabularySnapshot.writeInts(out, edgeTargets);
+        VocabularySnapshot.writeInts(out, values);
+        VocabularySnapshot.writeInts(out, depths);
+    }
+
+    /**
+     * Reads a trie written by write.
+     * @param in the snapshot, positioned at the trie
+     * @return the trie
+     */
+    static CharTrie read(ByteBuffer in) {
+        return new CharTrie(VocabularySnapshot.readInts(in), VocabularySnapshot.readChars(in),
+                            VocabularySnapshot.readInts(in), VocabularySnapshot.readInts(in),
+                            VocabularySnapshot.readInts(in));
+    }
+
+    /**
+     * Collects words and their values and then lays them out as a CharTrie.
+     */
+    static class Builder {
+        private final List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        private final List<Integer> values = new ArrayList<>();
+        private final List<Integer> depths = new ArrayList<>();
+
+        /**
+         * Constructs a builder with only the root node.
+         */
+        Builder() {
+            addNode(0);
+        }
+
+        /**
+         * Adds a word with the given value. If the word was already added the
+         * first value is kept.
+         * @param word the word to add
+         * @param value the value for that word
+         * @return true if the word was new
+         */
+        boolean add(String word, int value) {
+            int node = ROOT;
+            for (int i = 0; i < word.length(); ++i) {
+                Integer next = children.get(node).get(word.charAt(i));
+                if (next == null) {
+                    next = addNode(i + 1);
+                    children.get(node).put(word.charAt(i), next);
+                }
+                node = next;
+            }
+
+            if (node == ROOT || values.get(node) != NONE) {
+                return false;
+            }
+            values.set(node, value);
+            return true;
+        }
+
+        /**
+         * Lays the nodes out in flat arrays.
+         * @return the finished trie
+         */
+        CharTrie build() {
+            int nodes = children.size();
+            int[] firstEdge = new int[nodes + 1];
+            for (int n = 0; n < nodes; ++n) {
+                firstEdge[n + 1] = firstEdge[n] + children.get(n).size();
+            }
+
+            char[] edgeChars = new char[firstEdge[nodes]];
+            int[] edgeTargets = new int[firstEdge[nodes]];
+            int[] nodeValues = new int[nodes];
+            int[] nodeDepths = new int[nodes];
+
+            for (int n = 0; n < nodes; ++n) {
+                int edge = firstEdge[n];
+                for (Map.Entry<Character, Integer> pair : children.get(n).entrySet()) {
+                    edgeChars[edge] = pair.getKey();
+                    edgeTargets[edge] = pair.getValue();
+                    ++edge;
+                }
+                nodeValues[n] = values.get(n);
+                nodeDepths[n] = depths.get(n);
+            }
+
+            return new CharTrie(firstEdge, edgeChars, edgeTargets, nodeValues, nodeDepths);
+        }
+
+        private int addNode(int depth) {
+            children.add(new TreeMap<Character, Integer>());
+            values.add(NONE);
+            depths.add(depth);
+            return children.size() - 1;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package JournalMain;
+
+import Document.Entry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Finds entries by their date. Dates written like 2014-10-30 are turned
+ * into the number of days since 1970-01-01 once, when the entry is added,
+ * and kept in order, so one date is a log n lookup and a range of dates,
+ * like a month, is read straight out in date order. Any number of entries
+ * can have the same date; they are kept in the order they were added.
+ * <p>
+ * Entries with a date that isn't written like that can still be found by
+ * it, but not in a range.
+ * @author Grant
+ */
+public class DateIndex {
+    /**
+     * What toEpochDay returns for text that isn't a date.
+     */
+    public static final int NO_DAY = Integer.MIN_VALUE;
+
+    private final NavigableMap<Integer, List<Entry>> days = new TreeMap<>();
+    private final Map<String, List<Entry>> otherDates = new HashMap<>();
+
+    /**
+     * Adds the entry under its date.
+     * @param entry the entry
+     */
+    public void add(Entry entry) {
+        int day = toEpochDay(entry.getDate());
+        List<Entry> entries = day == NO_DAY ? otherDates.get(entry.getDate()) : days.get(day);
+        if (entries == null) {
+            entries = new ArrayList<>(1);
+            if (day == NO_DAY) {
+                otherDates.put(entry.getDate(), entries);
+            } else {
+                days.put(day, entries);
+            }
+        }
+        entries.add(entry);
+    }
+
+    /**
+     * Takes the entry out from under its date. The entry has to have the
+     * date it was added with.
+     * @param entry the entry
+     * @return true if the entry was there
+     */
+    public boolean remove(Entry entry) {
+        int day = toEpochDay(entry.getDate());
+        List<Entry> entries = day == NO_DAY ? otherDates.get(entry.getDate()) : days.get(day);
+        if (entries == null) {
+            return false;
+        }
+
+        for (int i = 0; i < entries.size(); ++i) {
+            if (entries.get(i) == entry) {
+                entries.remove(i);
+                if (entries.isEmpty() && day == NO_DAY) {
+                    otherDates.remove(entry.getDate());
+                } else if (entries.isEmpty()) {
+                    days.remove(day);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Empties the index.
+     */
+    public void clear() {
+        days.clear();
+        otherDates.clear();
+    }
+
+    /**
+     * Returns the first entry added with the date.
+     * @param date the date
+     * @return the entry, or null if there isn't one
+     */
+    public Entry getFirst(String date) {
+        List<Entry> entries = get(date);
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    /**
+     * Returns the entries with the date.
+     * @param date the date
+     * @return the entries, in the order they were added
+     */
+    public List<Entry> get(String date) {
+        int day = toEpochDay(date);
+        List<Entry> entries = day == NO_DAY ? otherDates.get(date) : days.get(day);
+        return entries == null ? Collections.<Entry>emptyList() : Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Returns the entries from the first day to the last, including both.
+     * @param firstDay days since 1970-01-01 of the first day
+     * @param lastDay days since 1970-01-01 of the last day
+     * @return the entries, in date order
+     */
+    public List<Entry> getRange(int firstDay, int lastDay) {
+        List<Entry> found = new ArrayList<>();
+        if (firstDay <= lastDay) {
+            for (List<Entry> entries : days.subMap(firstDay, true, lastDay, true).values()) {
+                found.addAll(entries);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the entries from the first date to the last, including both.
+     * @param firstDate the first date, like 2014-03-01
+     * @param lastDate the last date, like 2014-03-31
+     * @return the entries, in date order
+     * @throws IllegalArgumentException if either isn't a date
+     */
+    public List<Entry> getRange(String firstDate, String lastDate) {
+        int firstDay = toEpochDay(firstDate);
+        int lastDay = toEpochDay(lastDate);
+        if (firstDay == NO_DAY || lastDay == NO_DAY) {
+            throw new IllegalArgumentException("Not a date: " + (firstDay == NO_DAY ? firstDate : lastDate));
+        }
+        return getRange(firstDay, lastDay);
+    }
+
+    /**
+     * Returns the entries in the month.
+     * @param year the year
+     * @param month the month, from 1 for January to 12
+     * @return the entries, in date order
+     */
+    public List<Entry> getMonth(int year, int month) {
+        return getRange(toEpochDay(year, month, 1), toEpochDay(year, month, daysInMonth(year, month)));
+    }
+
+    /**
+     * Returns how many different dates have entries.
+     * @return the number of dates
+     */
+    public int size() {
+        return days.size() + otherDates.size();
+    }
+
+    /**
+     * Returns the number of days since 1970-01-01 of a date written like
+     * 2014-10-30.
+     * @param date the date
+     * @return the day, or NO_DAY if the text isn't a real date
+     */
+    public static int toEpochDay(String date) {
+        if (date == null || date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            return NO_DAY;
+        }
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 7);
+        int day = digits(date, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return NO_DAY;
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Returns the number of days since 1970-01-01 of the date. The months
+     * are counted from March so the leap day falls at the end of the year.
+     * @param year the year
+     * @param month the month, from 1 for January to 12
+     * @param day the day of the month
+     * @return the day
+     */
+    public static int toEpochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Returns how many days the month has.
+     * @param year the year
+     * @param month the month, from 1 for January to 12
+     * @return the number of days
+     */
+    public static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * Returns the number written in the text from start up to end, or -1 if
+     * it isn't only digits.
+     */
+    private static int digits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; ++i) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,164 @@
+package JournalMain;
+
+import Document.Entry;
+import Document.Scripture;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What happened to one entry: it was added, removed, or changed, and which
+ * scriptures and topics it gained or lost. Scriptures are compared by their
+ * full title. A view of the journal can patch itself with only these instead
+ * of being built again.
+ * @author Grant
+ */
+public class EntryChange {
+    private final Entry entry;
+    private final boolean added;
+    private final boolean removed;
+    private final List<Scripture> addedScriptures;
+    private final List<Scripture> removedScriptures;
+    private final List<String> addedTopics;
+    private final List<String> removedTopics;
+
+    private EntryChange(Entry entry, boolean added, boolean removed,
+                        List<Scripture> addedScriptures, List<Scripture> removedScriptures,
+                        List<String> addedTopics, List<String> removedTopics) {
+        this.entry = entry;
+        this.added = added;
+        this.removed = removed;
+        this.addedScriptures = Collections.unmodifiableList(addedScriptures);
+        this.removedScriptures = Collections.unmodifiableList(removedScriptures);
+        this.addedTopics = Collections.unmodifiableList(addedTopics);
+        this.removedTopics = Collections.unmodifiableList(removedTopics);
+    }
+
+    /**
+     * Returns the change for an entry that was added, which gained all of its
+     * scriptures and topics.
+     * @param entry the new entry
+     * @return the change
+     */
+    static EntryChange added(Entry entry) {
+        return new EntryChange(entry, true, false,
+                               new ArrayList<>(entry.getScriptureList()), new ArrayList<Scripture>(),
+                               new ArrayList<>(entry.getTopicsList()), new ArrayList<String>());
+    }
+
+    /**
+     * Returns the change for an entry that was removed, which lost all of its
+     * scriptures and topics.
+     * @param entry the removed entry
+     * @return the change
+     */
+    static EntryChange removed(Entry entry) {
+        return new EntryChange(entry, false, true,
+                               new ArrayList<Scripture>(), new ArrayList<>(entry.getScriptureList()),
+                               new ArrayList<String>(), new ArrayList<>(entry.getTopicsList()));
+    }
+
+    /**
+     * Returns the change between a copy of the entry from before and the
+     * entry now.
+     * @param before a copy of the entry before it changed
+     * @param after the entry
+     * @return the change
+     */
+    static EntryChange changed(Entry before, Entry after) {
+        return new EntryChange(after, false, false,
+                               missingScriptures(after, before), missingScriptures(before, after),
+                               missingTopics(after, before), missingTopics(before, after));
+    }
+
+    /**
+     * Returns the scriptures of the first entry that the second doesn't have.
+     */
+    private static List<Scripture> missingScriptures(Entry from, Entry in) {
+        List<Scripture> missing = new ArrayList<>();
+        for (Scripture scripture : from.getScriptureList()) {
+            if (!in.hasScripture(scripture)) {
+                missing.add(scripture);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Returns the topics of the first entry that the second doesn't have.
+     */
+    private static List<String> missingTopics(Entry from, Entry in) {
+        List<String> missing = new ArrayList<>();
+        for (String topic : from.getTopicsList()) {
+            if (!in.hasTopic(topic)) {
+                missing.add(topic);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Returns the entry that changed
+     * @return entry
+     */
+    public Entry getEntry() {
+        return entry;
+    }
+
+    /**
+     * Returns true if the entry is new to the journal.
+     * @return true or false
+     */
+    public boolean isAdded() {
+        return added;
+    }
+
+    /**
+     * Returns true if the entry was taken out of the journal.
+     * @return true or false
+     */
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    /**
+     * Returns true if the entry gained or lost a scripture or topic.
+     * @return true or false
+     */
+    public boolean hasReferenceChanges() {
+        return !addedScriptures.isEmpty() || !removedScriptures.isEmpty() ||
+               !addedTopics.isEmpty() || !removedTopics.isEmpty();
+    }
+
+    /**
+     * Returns the scriptures the entry gained
+     * @return addedScriptures
+     */
+    public List<Scripture> getAddedScriptures() {
+        return addedScriptures;
+    }
+
+    /**
+     * Returns the scriptures the entry lost
+     * @return removedScriptures
+     */
+    public List<Scripture> getRemovedScriptures() {
+        return removedScriptures;
+    }
+
+    /**
+     * Returns the topics the entry gained
+     * @return addedTopics
+     */
+    public List<String> getAddedTopics() {
+        return addedTopics;
+    }
+
+    /**
+     * Returns the topics the entry lost
+     * @return removedTopics
+     */
+    public List<String> getRemovedTopics() {
+        return removedTopics;
+    }
+}
@@ -0,0 +1,85 @@
+package JournalMain;
+
+import Document.Entry;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gives every entry in the journal a small int id, so indexes can keep ids
+ * in int arrays instead of keeping entries or dates. Ids count up from 0 in
+ * the order entries are added. An entry is known by the object itself, not
+ * its date, so two entries with the same date still get their own ids. The
+ * ids are given out again from 0 when the journal is read again.
+ * @author Grant
+ */
+public class EntryIds {
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<Entry, Integer> ids = new IdentityHashMap<>();
+
+    /**
+     * Gives the entry an id, or returns the one it already has.
+     * @param entry the entry
+     * @return its id
+     */
+    public int add(Entry entry) {
+        Integer id = ids.get(entry);
+        if (id == null) {
+            id = entries.size();
+            ids.put(entry, id);
+            entries.add(entry);
+        }
+        return id;
+    }
+
+    /**
+     * Takes the entry's id away. The id isn't given to another entry until
+     * the ids are cleared.
+     * @param entry the entry
+     * @return the id it had, or -1 if it didn't have one
+     */
+    public int remove(Entry entry) {
+        Integer id = ids.remove(entry);
+        if (id == null) {
+            return -1;
+        }
+        entries.set(id, null);
+        return id;
+    }
+
+    /**
+     * Returns the entry's id.
+     * @param entry the entry
+     * @return its id, or -1 if it doesn't have one
+     */
+    public int getId(Entry entry) {
+        Integer id = ids.get(entry);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the entry with the id.
+     * @param id the id
+     * @return the entry, or null if it was removed
+     */
+    public Entry getEntry(int id) {
+        return entries.get(id);
+    }
+
+    /**
+     * Returns one more than the highest id given out.
+     * @return the number of ids
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Forgets every id, so the next entry added gets 0.
+     */
+    public void clear() {
+        entries.clear();
+        ids.clear();
+    }
+}
@@ -1,375 +1,314 @@
-package JournalMain;
-
-import Document.Entry;
-import Document.Scripture;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Properties;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-/**
- * This is used to find scriptures and topics within an Entry. It also
- * has tests to see if the String given to it is a valid scripture or topic.
- * @author Grant
- */
-public class Finder {
-    private List<Scripture> scriptures = new ArrayList<>();
-    private Map<String, List<String>> topics = new HashMap<>();
-    private Map<String, List<String>> alternativeBookNames = new HashMap<>();
-    
-    private boolean validScrip;
-    
-    private final File books;
-    private final File terms;
-    private final File bookNames;
-    
-    private static final String PROPERTIES_FILE = "/Resources/journal.properties";
-    private static final String BOOKS_TXT = "books";
-    private static final String TERMS_TXT = "terms";
-    private static final String BOOK_NAMES_TXT = "bookNames";
-   
-    /**
-     * Constructs a finder with instructions found in a properties file.
-     * @throws IOException if any reading errors occurred
-     */
-    public Finder() throws IOException {
-        Properties propertyFile = new Properties();
-        propertyFile.load(getClass().getResourceAsStream(PROPERTIES_FILE));
-        
-        books = new File(propertyFile.getProperty(BOOKS_TXT));
-        terms = new File(propertyFile.getProperty(TERMS_TXT));
-        bookNames = new File(propertyFile.getProperty(BOOK_NAMES_TXT));
-        
-        readScripturesFile();
-        readFileToMap(terms, "topics");
-        readFileToMap(bookNames, "bookNames");
-    }
-    
-    /**
-     * This will determine whether or not the String given is a valid scripture.
-     * @param scrip the scripture to check if valid or not
-     * @return true or false
-     */
-    public boolean isValidScrip(Scripture scrip) {
-        validScrip = false;
-        
-        // Scripture is found, it's a valid scripture.
-        for (Scripture scripture : scriptures) {
-            if (scripture.getBookName().equals(scrip.getBookName())) {
-                if (Integer.parseInt(scripture.getChapter()) >= 
-                    Integer.parseInt(scrip.getChapter())) {
-                    validScrip = true;
-                    break;
-                }
-            }
-        }
-        
-        return validScrip;
-    }
-    
-    /**
-     * This will determine whether or not the String given is a valid topic.
-     * @param topic the topic at question
-     * @return true or false
-     */
-    public boolean isValidTopic(String topic) {
-        return topics.containsKey(topic);
-    }
-    
-    /**
-     * This is used to read in the file that contains the books and the
-     * chapter limit in each book.
-     * @return true or false whether or not it was successful with reading in
-     *         the file.
-     * @throws FileNotFoundException reading error
-     * @throws IOException reading error
-     */
-    private boolean readScripturesFile() throws FileNotFoundException, IOException {
-        if (books.canRead()) {
-            BufferedReader bf = new BufferedReader(new FileReader(books));
-            String line = "";
-            while ((line = bf.readLine()) != null) {
-                scriptures.add(new Scripture(line.substring(0, line.indexOf(":")),
-                                             line.substring(line.indexOf(":") + 1, line.length())));
-            }
-            
-            return true;
-        }
-        
-        return false;
-    }
-
-    /**
-     * This is used to read in the file that contains the topics.
-     * @return true or false whether or not it was successful with reading in
-     *         the file.
-     * @throws FileNotFoundException reading error
-     * @throws IOException reading error
-     */
-    private boolean readFileToMap(File file, String type) throws FileNotFoundException, IOException {
-        if (file.canRead()) {
-            BufferedReader bf = new BufferedReader(new FileReader(file));
-            String line = "";
-            String key = "";
-            String[] values;
-            
-            while ((line = bf.readLine()) != null) {
-                List<String> valuesList = new ArrayList<>();
-                
-                key = line.substring(0, line.indexOf(":"));
-                String temp = line.substring(line.indexOf(":")+1, line.length());
-                values = temp.split(",");
-                
-                // Find all the variations of the topic!
-                for (int i = 0; i < values.length; ++i) {
-                    valuesList.add(values[i]);
-                }
-                
-                // To which map are we storing this data?
-                switch (type) {
-                    case "topics":
-                        topics.put(key, valuesList);
-                        break;
-                    case "bookNames":
-                        alternativeBookNames.put(key, valuesList);
-                        break;
-                }
-            }
-            return true;
-        }
-        
-        return false;
-    }
-    
-    /**
-     * Parse the entry for scriptures
-     * @param entry entry to be parsed
-     */
-    public void parseForScriptures(Entry entry) {
-        entry.removeAllScriptures();
-        String patterns = "";
-        for (Map.Entry pairs : alternativeBookNames.entrySet()) {
-            List<String> values = (List<String>)pairs.getValue();
-            
-            // Pattern to look out for on each item.
-            for (String value : values) {
-                patterns += value + " chapter \\d+:\\d+|" +
-                        value + " section \\d+:\\d+|" +
-                        value + " chapter \\d+|" +
-                        value + " section \\d+|" +
-                        value + " \\d+:\\d+|" +
-                        value + " \\d+|";
-            }
-        }
-        
-        // Finalize the patterns and text for compiling and matching.
-        patterns += "v.\\d+|v. \\d+";
-        String lowerCaseText = entry.getText().toLowerCase();
-        
-        // Put the patterns in a Pattern object and see if there's a match.
-        Pattern pattern = Pattern.compile(patterns);
-        Matcher match = pattern.matcher(lowerCaseText);
-
-        // If the user wanted to display the results, display all the matches.
-        while (match.find()) {
-            String scripture = match.group();
-            String substring1 = "chapter ";
-            String substring2 = "section ";
-            String replacement = "";
-            String newScriptRef = null;
-
-            // Replace chapter or section from the scripture reference.
-            newScriptRef = scripture.replace(substring1, replacement);
-            newScriptRef = newScriptRef.replace(substring2, replacement);
-            
-            String book       = "";
-            String chapter    = "";
-            String startVerse = "";
-            String endVerse   = "";
-            
-            boolean bookTime       = true;
-            boolean chapterTime    = true;
-            boolean startVerseTime = true;
-            boolean endVerseTime   = true;
-            
-            int i = 0;
-            
-            // Fill strings with book name, chapter, and verses..
-            while (i < newScriptRef.length() && bookTime) {
-                if (!Character.isDigit(newScriptRef.charAt(i)) || i == 0) {
-                    book += newScriptRef.charAt(i);
-                    ++i;
-                } else {
-                   bookTime = false;
-                   book = book.trim();
-                }
-            }
-            
-            for (; i < newScriptRef.length() && chapterTime; ++i) {
-                if (newScriptRef.charAt(i) != ':') {
-                    chapter += newScriptRef.charAt(i);
-                } else {
-                    chapterTime = false;
-                    chapter = chapter.trim();
-                }
-            }
-            
-            for (; i < newScriptRef.length() && startVerseTime; ++i) {
-                if (newScriptRef.charAt(i) != ',' || newScriptRef.charAt(i) != '-') {
-                    startVerse += newScriptRef.charAt(i);
-                } else {
-                    startVerseTime = false;
-                    startVerse = startVerse.trim();
-                }
-            }
-            
-            for (; i < newScriptRef.length() && endVerseTime; ++i) {
-                if (endVerseTime) {
-                    endVerse += newScriptRef.charAt(i);
-                }
-            }
-            
-            // Trim off extra white space.
-            endVerse = endVerse.trim();
-            
-            // Check for stray verses and rename the book name to whatever book was used last.
-            if (book.equals("v.")) {
-                if (!entry.getScriptureList().isEmpty()) {
-                    book = entry.getScriptureAt(entry.getScriptureList().size()-1).getBookName();
-                }
-            }
-        
-            // Find the "true" name of the book.
-            for (Map.Entry pairs : alternativeBookNames.entrySet()) {
-                List<String> values = (List<String>)pairs.getValue();
-                String key = (String)pairs.getKey();
-                
-                for (String value : values) {
-                    if (value.equals(book)) {
-                        book = key;
-                        break;
-                    }
-                }
-            }
-            
-            Scripture scriptureToAdd = new Scripture(book, chapter, startVerse, endVerse);
-            
-            // Is this a valid scripture and is there this scripture already in the entry.
-            if (isValidScrip(scriptureToAdd) && !hasScripture(entry, scriptureToAdd)) {
-                entry.addScripture(scriptureToAdd);
-            }
-        }
-    }
-    
-    /**
-     * Parse the entry for topics
-     * @param entry entry to parse
-     */
-    public void parseForTopics(Entry entry) {
-        entry.removeAllTopics();
-        String patterns = "";
-        for (Map.Entry pairs : topics.entrySet()) {
-            List<String> values = (List<String>)pairs.getValue();
-            
-            // Pattern to look out for on each item.
-            for (String value : values) {
-                patterns += value + "|";
-            }
-        }
-        
-        Pattern pattern = Pattern.compile(patterns);
-        Matcher match = pattern.matcher(entry.getText());
-        
-        while (match.find()) {
-            for (Map.Entry pairs : topics.entrySet()) {
-                boolean found = false;
-                List<String> values = (List<String>)pairs.getValue();
-                
-                for (String value : values) {
-                    if (value.equals(match.group())) {
-                        if (!hasTopic(entry, (String)pairs.getKey())) {
-                            entry.addTopic((String)pairs.getKey());
-                            found = true;
-                            break;
-                        }
-                    }
-                }
-                
-                if (found) {
-                    break;
-                }
-            }
-        }
-    }
-    
-    /**
-     * Returns true or false whether or not the entry has the given scripture.
-     * @param entry entry to check scripture presence.
-     * @param scrip scripture to be checked for.
-     * @return true or false.
-     */
-    public boolean hasScripture(Entry entry, Scripture scrip) {
-        for (Scripture scripture : entry.getScriptureList()) {
-            if (scrip.getFullTitle().equals(scripture.getFullTitle())) {
-                return true;
-            }
-        }
-        return false;
-    }
-    
-    /**
-     * Returns true or false depending on whether or not the given entry has
-     * the given topic or not.
-     * @param entry entry to check topic presence.
-     * @param top topic to be checked for.
-     * @return true or false.
-     */
-    public boolean hasTopic(Entry entry, String top) {
-        for (String topic : entry.getTopicsList()) {
-            if (topic.equals(top)) {
-                return true;
-            }
-        }
-        return false;
-    }
-    
-    /**
-     * Returns the scripture list.
-     * @return scriptures.
-     */
-    public List<Scripture> getScriptures() {
-        return scriptures;
-    }
-
-    /**
-     * Sets the scripture list.
-     * @param scriptures the new scripture list. 
-     */
-    public void setScriptures(List<Scripture> scriptures) {
-        this.scriptures = scriptures;
-    }
-
-    /**
-     * Returns the topic list.
-     * @return topics
-     */
-    public Map<String, List<String>> getTopics() {
-        return topics;
-    }
-
-    /**
-     * Sets the topic list.
-     * @param topics the new topic list.
-     */
-    public void setTopics(Map<String, List<String>> topics) {
-        this.topics = topics;
-    }
+package JournalMain;
+
+import Document.Entry;
+import Document.Scripture;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This is used to find scriptures and topics within an Entry. It also
+ * has tests to see if the String given to it is a valid scripture or topic.
+ * Everything it knows is kept in one Vocabulary that never changes, so any
+ * number of threads can parse with the same finder. A new vocabulary can be
+ * put in at any time and is used starting with the next parse.
+ * @author Grant
+ */
+public class Finder {
+    private volatile Vocabulary vocabulary;
+   
+    /**
+     * Constructs a finder with the default vocabulary, which is read from the
+     * files in the properties file the first time and then shared.
+     * @throws IOException if any reading errors occurred
+     */
+    public Finder() throws IOException {
+        this(Vocabulary.getDefault());
+    }
+    
+    /**
+     * Constructs a finder that uses the given vocabulary.
+     * @param vocabulary the books, book names and topics to look for
+     */
+    public Finder(Vocabulary vocabulary) {
+        this.vocabulary = vocabulary;
+    }
+    
+    /**
+     * This will determine whether or not the String given is a valid scripture.
+     * @param scrip the scripture to check if valid or not
+     * @return true or false
+     */
+    public boolean isValidScrip(Scripture scrip) {
+        return vocabulary.getCanon().isValid(scrip.getBookName(), scrip.getChapter());
+    }
+    
+    /**
+     * Returns the id of the book that goes by the given name. Both the real
+     * name and any alternative name work, in upper or lower case.
+     * @param name a name of the book
+     * @return the book's id in the canon or Canon.UNKNOWN_BOOK
+     */
+    public int getBookId(String name) {
+        return vocabulary.getBookId(name);
+    }
+    
+    /**
+     * Returns the real name of the book that goes by the given name, like
+     * "Genesis" for "gen.".
+     * @param name a name of the book
+     * @return the book's real name or null if there is no such book
+     */
+    public String getTrueBookName(String name) {
+        Vocabulary current = vocabulary;
+        int bookId = current.getBookId(name);
+        return bookId == Canon.UNKNOWN_BOOK ? null : current.getCanon().getBookName(bookId);
+    }
+    
+    /**
+     * This will determine whether or not the String given is a valid topic.
+     * @param topic the topic at question
+     * @return true or false
+     */
+    public boolean isValidTopic(String topic) {
+        return vocabulary.getTopics().containsKey(topic);
+    }
+    
+    /**
+     * Parse the entry for scriptures
+     * @param entry entry to be parsed
+     */
+    public void parseForScriptures(Entry entry) {
+        findScriptures(entry, entry.getText(), vocabulary);
+    }
+    
+    /**
+     * Replaces the entry's scriptures with the ones found in the text.
+     * @param entry entry to store the scriptures in
+     * @param text the entry's text
+     * @param words the vocabulary to use
+     */
+    private void findScriptures(final Entry entry, String text, Vocabulary words) {
+        entry.removeAllScriptures();
+        final Canon books = words.getCanon();
+        
+        words.getScriptureTokenizer().scan(text, new ScriptureTokenizer.Listener() {
+            @Override
+            public void found(int bookId, int chapter, int startVerse, int endVerse) {
+                String book;
+                String chapterText;
+                
+                // Stray verses belong to the book and chapter used last.
+                if (bookId == ScriptureTokenizer.STRAY_VERSE) {
+                    if (entry.getScriptureList().isEmpty()) {
+                        return;
+                    }
+                    Scripture last = entry.getScriptureAt(entry.getScriptureList().size() - 1);
+                    book = last.getBookName();
+                    chapterText = last.getChapter();
+                } else if (books.isValid(bookId, chapter)) {
+                    book = books.getBookName(bookId);
+                    chapterText = String.valueOf(chapter);
+                } else {
+                    return;
+                }
+                
+                Scripture scriptureToAdd = new Scripture(book, chapterText,
+                        verseToString(startVerse), verseToString(endVerse));
+                
+                // The entry leaves out a scripture it already has.
+                entry.addScripture(scriptureToAdd);
+            }
+        });
+    }
+    
+    /**
+     * Turns a verse from the tokenizer into the text stored in a Scripture.
+     * @param verse the verse number or NO_VERSE
+     * @return the verse as text, empty if there isn't one
+     */
+    private static String verseToString(int verse) {
+        return verse == ScriptureTokenizer.NO_VERSE ? "" : String.valueOf(verse);
+    }
+    
+    /**
+     * Parse the entry for topics
+     * @param entry entry to parse
+     */
+    public void parseForTopics(Entry entry) {
+        findTopics(entry, entry.getText(), vocabulary);
+    }
+    
+    /**
+     * Replaces the entry's topics with the ones found in the text.
+     * @param entry entry to store the topics in
+     * @param text the entry's text
+     * @param words the vocabulary to use
+     */
+    private void findTopics(final Entry entry, String text, Vocabulary words) {
+        entry.removeAllTopics();
+        final TopicMatcher matcher = words.getTopicMatcher();
+        
+        // Every variant found already knows which topic it belongs to.
+        matcher.scan(text, new TopicMatcher.Listener() {
+            @Override
+            public void found(int topicId, int start, int end) {
+                entry.addTopic(matcher.getTopicName(topicId));
+            }
+        });
+    }
+    
+    /**
+     * Parse the entry for both scriptures and topics. Nothing in the finder
+     * changes while parsing, so many entries can be analyzed at once.
+     * @param entry entry to analyze
+     */
+    public void analyze(Entry entry) {
+        analyze(entry, vocabulary);
+    }
+    
+    private void analyze(Entry entry, Vocabulary words) {
+        String text = entry.getText();
+        findScriptures(entry, text, words);
+        findTopics(entry, text, words);
+    }
+    
+    /**
+     * Analyzes all of the entries on a shared fork-join pool that has a
+     * thread for each processor. Returns once every entry is done.
+     * @param entries entries to analyze
+     * @return the same entries, now with their scriptures and topics
+     */
+    public List<Entry> analyzeAll(List<Entry> entries) {
+        return analyzeAll(entries, AnalyzerPool.POOL);
+    }
+    
+    /**
+     * Returns the shared fork-join pool that analyzeAll uses, which has a
+     * thread for each processor.
+     * @return the shared pool
+     */
+    public static ForkJoinPool getSharedPool() {
+        return AnalyzerPool.POOL;
+    }
+    
+    /**
+     * Analyzes all of the entries on the given fork-join pool. The list is
+     * split in halves until the pieces are small, and each piece is analyzed
+     * by one worker. Every entry is analyzed with the vocabulary in use when
+     * this was called. Returns once every entry is done.
+     * @param entries entries to analyze
+     * @param pool the pool to do the work on
+     * @return the same entries, now with their scriptures and topics
+     */
+    public List<Entry> analyzeAll(List<Entry> entries, ForkJoinPool pool) {
+        if (!entries.isEmpty()) {
+            pool.invoke(new AnalyzeTask(entries, 0, entries.size(), vocabulary));
+        }
+        return entries;
+    }
+    
+    /**
+     * Returns true or false whether or not the entry has the given scripture.
+     * @param entry entry to check scripture presence.
+     * @param scrip scripture to be checked for.
+     * @return true or false.
+     */
+    public boolean hasScripture(Entry entry, Scripture scrip) {
+        return entry.hasScripture(scrip);
+    }
+    
+    /**
+     * Returns true or false depending on whether or not the given entry has
+     * the given topic or not.
+     * @param entry entry to check topic presence.
+     * @param top topic to be checked for.
+     * @return true or false.
+     */
+    public boolean hasTopic(Entry entry, String top) {
+        return entry.hasTopic(top);
+    }
+    
+    /**
+     * Returns the scripture list.
+     * @return scriptures.
+     */
+    public List<Scripture> getScriptures() {
+        return vocabulary.getCanon().getBooks();
+    }
+    
+    /**
+     * Returns the canon of books and their chapter counts.
+     * @return canon
+     */
+    public Canon getCanon() {
+        return vocabulary.getCanon();
+    }
+
+    /**
+     * Returns the topic list. It can't be changed; use setVocabulary instead.
+     * @return topics
+     */
+    public Map<String, List<String>> getTopics() {
+        return vocabulary.getTopics();
+    }
+    
+    /**
+     * Returns the vocabulary in use right now.
+     * @return vocabulary
+     */
+    public Vocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * Puts in a new vocabulary. Parses already going on finish with the old
+     * one and every parse after this uses the new one.
+     * @param vocabulary the new vocabulary
+     */
+    public void setVocabulary(Vocabulary vocabulary) {
+        this.vocabulary = vocabulary;
+    }
+    
+    /**
+     * Analyzes a range of entries, splitting it up when it is too big.
+     */
+    private class AnalyzeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 64;
+        
+        private final List<Entry> entries;
+        private final int start;
+        private final int end;
+        private final Vocabulary words;
+        
+        AnalyzeTask(List<Entry> entries, int start, int end, Vocabulary words) {
+            this.entries = entries;
+            this.start = start;
+            this.end = end;
+            this.words = words;
+        }
+        
+        @Override
+        protected void compute() {
+            if (end - start <= THRESHOLD) {
+                for (int i = start; i < end; ++i) {
+                    analyze(entries.get(i), words);
+                }
+            } else {
+                int middle = (start + end) >>> 1;
+                invokeAll(new AnalyzeTask(entries, start, middle, words),
+                          new AnalyzeTask(entries, middle, end, words));
+            }
+        }
+    }
+    
+    /**
+     * Holds the shared pool, which is only made the first time it is needed.
+     */
+    private static class AnalyzerPool {
+        static final ForkJoinPool POOL = new ForkJoinPool();
+    }
 }
\ No newline at end of file
@@ -1,365 +1,795 @@
-package JournalMain;
-
-import Document.Entry;
-import Document.Scripture;
-import Document.TextFile;
-import Document.XML;
-
-import java.io.FileNotFoundException;
-import java.io.IOException;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerException;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.xml.sax.SAXException;
-
-/**
- * CLASS JOURNAL:
- * 
- * @author Grant
- */
-public class Journal {
-    private XML xmlFile;
-    private List <Entry> entries;
-    private TextFile textDoc;
-    private Map<String, List<String>> foundScriptures;
-    private Map<String, List<String>> foundTopics;
-    
-    // Have yet to implement
-    private boolean overDueAlert;
-    private final Finder finder;
-    
-    public Journal() throws IOException {
-        foundScriptures = new HashMap<>();
-        foundTopics     = new HashMap<>();
-        finder          = new Finder();
-        entries         = new ArrayList<>();
-    }
-        
-    /**
-     * Once a text document has been imported, use this method be
-     * add the entries from the text document to the entries list. Useful
-     * for saving the XML file later on.
-     */
-    public void addEntriesFromTextDoc () {
-        String[] lines = textDoc.getText().split("\n");
-        String date    = "";
-        String content = "";
-        
-        entries = new ArrayList<>();
-        
-        // Add on the our entry list all entries in text document.
-        for (int i = 0; i < lines.length; ++i) {
-            if (lines[i].equals("-----")) {
-                ++i;
-                date = lines[i];
-                ++i;
-                content = "";
-                
-                while (i < lines.length && !lines[i].equals("-----")) {
-                    content += lines[i] + "\n";
-                    ++i;
-                }
-                
-                --i;
-                
-                Entry entry = new Entry();
-                entry.setDate(date);
-                entry.setText(content);
-                entries.add(entry);
-            }
-        }
-    }
-    
-    /**
-     * Displays the entries with scripture and topic references on the console.
-     */
-    public void displayEntriesInConsole() {
-        System.out.println("Journal:\n");
-        System.out.println("Scripture References:");
-        
-        // Scriptures References
-        Iterator it = foundScriptures.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry pairs = (Map.Entry)it.next();
-            System.out.println(pairs.getKey());
-            List<String> values = (List)pairs.getValue();
-            
-            for (String value : values) {
-                System.out.println("        " + value);
-            }
-            it.remove();
-        }
-        
-        System.out.println("\nTopic References:\n");
-        
-        // Topic References
-        it = foundTopics.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry pairs = (Map.Entry)it.next();
-            System.out.println(pairs.getKey());
-            List<String> values = (List)pairs.getValue();
-            
-            for (String value : values) {
-                System.out.println("        " + value);
-            }
-            it.remove();
-        }        
-    }
-    
-    /**
-     * Adds an entry with the given date and text.
-     * @param date
-     * @param text 
-     */
-    public void addEntry(String date, String text) {
-        Entry entry = new Entry();
-        entry.setDate(date);
-        entry.setText(text);
-    }
-    
-    /**
-     * Create a Document object with the entries stored to prepare to save
-     * to an XML file.
-     * @throws ParserConfigurationException Error while parsing
-     * @throws FileNotFoundException Could not find the file
-     */
-    public void buildXML() throws ParserConfigurationException, FileNotFoundException {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document doc = builder.newDocument();
-         
-        Element root = doc.createElement("journal");
-        doc.appendChild(root);
-        
-        // Add entry, scripture, topic, and content nodes for each entry.
-        for(Entry entry : entries) {
-            Element entryNode = doc.createElement("entry");
-            entryNode.setAttribute("date", entry.getDate());
-            root.appendChild(entryNode);
-            
-            addScriptureToXML(entry, entryNode, doc);
-            addTopicToXML(entry, entryNode, doc);
-            
-            Element content = doc.createElement("content");
-            content.setTextContent(entry.getText());
-            entryNode.appendChild(content);
-        }
-        
-        // Store document in XML object
-        xmlFile.setDocument(doc);
-    }
-    
-    /**
-     * Adds a scripture node to the entry node.
-     * @param entry
-     * @param entryNode
-     * @param doc 
-     */
-    private void addScriptureToXML(Entry entry, Element entryNode, Document doc) {
-        for (Scripture scripture : entry.getScriptureList()) {
-            Element scriptureNode = doc.createElement("scripture");
-            if (!scripture.getStartVerse().equals("")) {
-                scriptureNode.setAttribute("startverse", scripture.getStartVerse());
-            }
-            if (!scripture.getChapter().equals("")) {
-                scriptureNode.setAttribute("chapter", scripture.getChapter());
-            }
-            if (!scripture.getBookName().equals("")) {
-                scriptureNode.setAttribute("book", scripture.getBookName());
-            }
-            if (!scripture.getEndVerse().equals("")) {
-                scriptureNode.setAttribute("endverse", scripture.getEndVerse());
-            }
-            entryNode.appendChild(scriptureNode);
-        }
-    }
-    
-    /**
-     * Adds a topic node to the entry node.
-     * @param entry
-     * @param entryNode
-     * @param doc 
-     */
-    private void addTopicToXML(Entry entry, Element entryNode, Document doc) {
-        for (String topic : entry.getTopicsList()) {
-            Element topicNode = doc.createElement("topic");
-            topicNode.setTextContent(topic);
-            entryNode.appendChild(topicNode);
-        }
-    }
-    
-    /**
-     * Reads the XML file, parses it, and validates it.
-     * @throws IOException Reading file went wrong.
-     * @throws SAXException Error while parsing
-     * @throws ParserConfigurationException Error while parsing
-     */
-    public void readXML() throws IOException, SAXException, ParserConfigurationException {
-        xmlFile.readFile();
-        entries = xmlFile.parseXML();
-        validateXML();
-    }
-    
-    /**
-     * Calls the xmlFile's save method.
-     * @throws TransformerException Could not transform the XML file.
-     * @throws javax.xml.parsers.ParserConfigurationException XML didn't parse correctly
-     * @throws java.io.FileNotFoundException XML file to save was not found.
-     */
-    public void saveXML() throws TransformerException, ParserConfigurationException,
-            FileNotFoundException {
-        buildXML();
-        xmlFile.save();
-    }
-    
-    /**
-     * This will check the validity of a XML file by checking the scriptures
-     * and topics and put them into a map with the entries that are associated
-     * with them.
-     * @throws IOException if the scripture or topic is invalid. 
-     */
-    public void validateXML() throws IOException {
-        for (Entry entry : entries) {
-            // Validate scriptures and adds the entry to the scripture map.
-            for (Scripture scripture : entry.getScriptureList()) {
-                if (!finder.isValidScrip(scripture)) {
-                    throw new IOException("ERROR: Scripture in XML file is invalid: " +
-                            scripture.getFullTitle());
-                } else {
-                    addEntryToScriptureMap(scripture, entry);
-               }
-            }
-            // Validate topics and adds the entry to the topic map.
-            for (String topic : entry.getTopicsList()) {
-                if (!finder.isValidTopic(topic)) {
-                    throw new IOException("ERROR: Topic in XML file is invalid: " + topic);
-                } else {
-                    addEntryToTopicMap(topic, entry);
-               }
-            }
-        }
-    }
-    
-    /**
-     * Adds an entry to the corresponding scripture.
-     * @param scripture
-     * @param entry 
-     */
-    private void addEntryToScriptureMap(Scripture scripture, Entry entry) {
-        List<String> temp = null;
-                 
-        // Store the entry's date with the scripture's book name
-        if (foundScriptures.containsKey(scripture.getBookName())) {
-            temp = foundScriptures.get(scripture.getBookName());
-            temp.add(entry.getDate());
-        } else {
-            temp = new ArrayList();
-            temp.add(entry.getDate());
-        }
-        foundScriptures.put(scripture.getBookName(), temp); 
-    }
-    
-    /**
-     * Adds an entry to the corresponding topic.
-     * @param topic
-     * @param entry 
-     */
-    private void addEntryToTopicMap(String topic, Entry entry) {
-        List<String> temp;
-                    
-        // Store the entry's date with the topic found.
-        if (foundTopics.containsKey(topic)) {
-            temp = foundTopics.get(topic);
-            temp.add(entry.getDate());
-        } else {
-            temp = new ArrayList();
-            temp.add(entry.getDate());
-        }
-        foundTopics.put(topic, temp);
-    }
-    
-    /**
-     * Imports a text document into the textDoc.
-     * @throws IOException if the file wasn't read correctly.
-     */
-    public void importTxt() throws IOException {
-        textDoc.readFile();
-        addEntriesFromTextDoc();
-    }
-    
-    /**
-     * Exports a text document from textDoc
-     * @throws IOException if the file wasn't saved correctly.
-     */
-    public void exportTxt() throws IOException {
-        textDoc.setEntries(entries);
-        textDoc.save();
-    }
-    
-    /**
-     * Returns xmlFile
-     * @return xmlFile
-     */
-    public XML getXmlFile() {
-        return xmlFile;
-    }
-
-    /**
-     * Sets xmlFile
-     * @param xmlFile 
-     */
-    public void setXmlFile(XML xmlFile) {
-        this.xmlFile = xmlFile;
-    }
-
-    /**
-     * Returns the list of entries
-     * @return entries
-     */
-    public List<Entry> getEntries() {
-        return entries;
-    }
-
-    /**
-     * Sets the list of entries
-     * @param entries 
-     */
-    public void setEntries(List<Entry> entries) {
-        this.entries = entries;
-    }
-    
-    /**
-     * Returns the textDoc
-     * @return textDoc
-     */
-    public TextFile getTextDoc() {
-        return textDoc;
-    }
-
-    /**
-     * Sets the textDoc
-     * @param textDoc 
-     */
-    public void setTextDoc(TextFile textDoc) {
-        this.textDoc = textDoc;
-    }
-
-    /**
-     * Returns the finder.
-     * @return finder
-     */
-    public Finder getFinder() {
-        return finder;
-    }
+package JournalMain;
+
+import Document.BinaryJournal;
+import Document.Entry;
+import Document.EntryHandler;
+import Document.JournalLog;
+import Document.Scripture;
+import Document.TextFile;
+import Document.XML;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+/**
+ * CLASS JOURNAL:
+ * 
+ * @author Grant
+ */
+public class Journal {
+    private XML xmlFile;
+    private List <Entry> entries;
+    private TextFile textDoc;
+    private JournalLog journalLog;
+    private BinaryJournal binaryFile;
+    private final EntryIds entryIds;
+    private final ReferenceIndex references;
+    private final SearchIndex searchIndex;
+    private boolean searchIndexStale;
+    private final DateIndex dates;
+    private final List<Listener> listeners;
+    
+    // Have yet to implement
+    private boolean overDueAlert;
+    private final Finder finder;
+    
+    /**
+     * Listens for entries being added, changed or removed through
+     * upsertEntry and removeEntry.
+     */
+    public interface Listener {
+        /**
+         * Called on the thread that made the change, after the index has it.
+         * @param change what happened to the entry
+         */
+        void entryChanged(EntryChange change);
+    }
+    
+    public Journal() throws IOException {
+        entryIds        = new EntryIds();
+        references      = new ReferenceIndex();
+        searchIndex     = new SearchIndex();
+        dates           = new DateIndex();
+        listeners       = new CopyOnWriteArrayList<>();
+        finder          = new Finder();
+        entries         = new ArrayList<>();
+    }
+        
+    /**
+     * Once a text document has been imported, use this method be
+     * add the entries from the text document to the entries list. Useful
+     * for saving the XML file later on.
+     * @throws IOException if the text couldn't be parsed.
+     */
+    public void addEntriesFromTextDoc () throws IOException {
+        entries = textDoc.parseText();
+        indexEntries();
+    }
+    
+    /**
+     * Displays the entries with scripture and topic references on the console.
+     */
+    public void displayEntriesInConsole() {
+        System.out.println("Journal:\n");
+        System.out.println("Scripture References:");
+        
+        // Scriptures References
+        for (String book : references.getBooks()) {
+            System.out.println(book);
+            printDates(references.getBook(book));
+        }
+        
+        System.out.println("\nTopic References:\n");
+        
+        // Topic References
+        for (String topic : references.getTopics()) {
+            System.out.println(topic);
+            printDates(references.getTopic(topic));
+        }
+    }
+    
+    /**
+     * Prints the date of each entry in the postings on its own line.
+     * @param postings the entries to print
+     */
+    private void printDates(Postings postings) {
+        for (int i = 0; i < postings.size(); ++i) {
+            System.out.println("        " + entryIds.getEntry(postings.get(i)).getDate());
+        }
+    }
+    
+    /**
+     * Adds an entry with the given date and text.
+     * @param date
+     * @param text 
+     */
+    public void addEntry(String date, String text) {
+        Entry entry = new Entry();
+        entry.setDate(date);
+        entry.setText(text);
+    }
+    
+    /**
+     * Create a Document object with the entries stored to prepare to save
+     * to an XML file.
+     * @throws ParserConfigurationException Error while parsing
+     * @throws FileNotFoundException Could not find the file
+     */
+    public void buildXML() throws ParserConfigurationException, FileNotFoundException {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        Document doc = builder.newDocument();
+         
+        Element root = doc.createElement("journal");
+        doc.appendChild(root);
+        
+        // Add entry, scripture, topic, and content nodes for each entry.
+        for(Entry entry : entries) {
+            Element entryNode = doc.createElement("entry");
+            entryNode.setAttribute("date", entry.getDate());
+            root.appendChild(entryNode);
+            
+            addScriptureToXML(entry, entryNode, doc);
+            addTopicToXML(entry, entryNode, doc);
+            
+            Element content = doc.createElement("content");
+            content.setTextContent(entry.getText());
+            entryNode.appendChild(content);
+        }
+        
+        // Store document in XML object
+        xmlFile.setDocument(doc);
+    }
+    
+    /**
+     * Adds a scripture node to the entry node.
+     * @param entry
+     * @param entryNode
+     * @param doc 
+     */
+    private void addScriptureToXML(Entry entry, Element entryNode, Document doc) {
+        for (Scripture scripture : entry.getScriptureList()) {
+            Element scriptureNode = doc.createElement("scripture");
+            if (!scripture.getStartVerse().equals("")) {
+                scriptureNode.setAttribute("startverse", scripture.getStartVerse());
+            }
+            if (!scripture.getChapter().equals("")) {
+                scriptureNode.setAttribute("chapter", scripture.getChapter());
+            }
+            if (!scripture.getBookName().equals("")) {
+                scriptureNode.setAttribute("book", scripture.getBookName());
+            }
+            if (!scripture.getEndVerse().equals("")) {
+                scriptureNode.setAttribute("endverse", scripture.getEndVerse());
+            }
+            entryNode.appendChild(scriptureNode);
+        }
+    }
+    
+    /**
+     * Adds a topic node to the entry node.
+     * @param entry
+     * @param entryNode
+     * @param doc 
+     */
+    private void addTopicToXML(Entry entry, Element entryNode, Document doc) {
+        for (String topic : entry.getTopicsList()) {
+            Element topicNode = doc.createElement("topic");
+            topicNode.setTextContent(topic);
+            entryNode.appendChild(topicNode);
+        }
+    }
+    
+    /**
+     * Reads the XML file and validates it. The file is streamed, so each
+     * entry is validated as it is read and no Document is built.
+     * @throws IOException Reading file went wrong or the file is invalid.
+     * @throws SAXException Error while parsing
+     * @throws ParserConfigurationException Error while parsing
+     */
+    public void readXML() throws IOException, SAXException, ParserConfigurationException {
+        final List<Entry> readEntries = new ArrayList<>();
+        
+        try {
+            xmlFile.readEntries(new EntryHandler() {
+                @Override
+                public void handle(Entry entry) throws IOException {
+                    validateEntry(entry);
+                    readEntries.add(entry);
+                }
+            });
+        } catch (XMLStreamException ex) {
+            throw new IOException("ERROR: XML file is not well formed: " + ex.getMessage(), ex);
+        }
+        
+        entries = readEntries;
+        indexEntries();
+    }
+    
+    /**
+     * Saves the entries to the xmlFile. The entries are written straight to
+     * the file; use buildXML to get a Document instead.
+     * @throws IOException XML file could not be written.
+     */
+    public void saveXML() throws IOException {
+        try {
+            xmlFile.save(entries);
+        } catch (XMLStreamException ex) {
+            throw new IOException("ERROR: Could not write XML file: " + ex.getMessage(), ex);
+        }
+    }
+    
+    /**
+     * Opens the journal log and reads the entries in it, validating each
+     * one like readXML does.
+     * @throws IOException Reading the log went wrong or an entry is invalid.
+     */
+    public void readLog() throws IOException {
+        List<Entry> readEntries = journalLog.open();
+        
+        for (Entry entry : readEntries) {
+            validateEntry(entry);
+        }
+        entries = readEntries;
+        indexEntries();
+    }
+    
+    /**
+     * Saves every entry to the journal log, replacing what was in it.
+     * @throws IOException The log could not be written.
+     */
+    public void saveLog() throws IOException {
+        journalLog.create(entries);
+    }
+    
+    /**
+     * Reads the binary journal and validates it like readXML does. Only the
+     * index of the file is read; the text of each entry is read when it is
+     * first asked for. That is why the search index isn't built here but on
+     * the first search.
+     * @throws IOException Reading the file went wrong or an entry is invalid.
+     */
+    public void readBinary() throws IOException {
+        List<Entry> readEntries = binaryFile.read();
+        
+        for (Entry entry : readEntries) {
+            validateEntry(entry);
+        }
+        entries = readEntries;
+        indexReferences();
+    }
+    
+    /**
+     * Saves the entries to the binary journal.
+     * @throws IOException The file could not be written.
+     */
+    public void saveBinary() throws IOException {
+        binaryFile.save(entries);
+    }
+    
+    /**
+     * Saves one entry to the journal log, if the journal has one. Only the
+     * entry is written, and the log is compacted once it has grown too big.
+     * @param entry the entry that changed
+     * @throws IOException The log could not be written.
+     */
+    public void saveEntry(Entry entry) throws IOException {
+        if (journalLog != null) {
+            journalLog.save(entry);
+            if (journalLog.needsCompaction()) {
+                journalLog.compact(entries);
+            }
+        }
+    }
+    
+    /**
+     * This will check the validity of a XML file by checking the scriptures
+     * and topics and put them into a map with the entries that are associated
+     * with them.
+     * @throws IOException if the scripture or topic is invalid. 
+     */
+    public void validateXML() throws IOException {
+        for (Entry entry : entries) {
+            validateEntry(entry);
+        }
+        indexEntries();
+    }
+    
+    /**
+     * Checks the scriptures and topics of one entry. The index is only
+     * rebuilt once every entry passed, so a file that fails leaves the
+     * journal and its index as they were.
+     * @param entry the entry to check
+     * @throws IOException if the scripture or topic is invalid.
+     */
+    private void validateEntry(Entry entry) throws IOException {
+        // Validate scriptures.
+        for (Scripture scripture : entry.getScriptureList()) {
+            if (!finder.isValidScrip(scripture)) {
+                throw new IOException("ERROR: Scripture in XML file is invalid: " +
+                        scripture.getFullTitle());
+            }
+        }
+        // Validate topics.
+        for (String topic : entry.getTopicsList()) {
+            if (!finder.isValidTopic(topic)) {
+                throw new IOException("ERROR: Topic in XML file is invalid: " + topic);
+            }
+        }
+    }
+    
+    /**
+     * Gives the entry an id and adds it to the index.
+     * @param entry the entry
+     */
+    private void indexEntry(Entry entry) {
+        references.add(entryIds.add(entry), entry);
+        dates.add(entry);
+    }
+    
+    /**
+     * Empties the index and gives out entry ids from 0 again. The search
+     * index is left to be built again.
+     */
+    private void clearIndex() {
+        entryIds.clear();
+        references.clear();
+        dates.clear();
+        searchIndex.clear();
+        searchIndexStale = true;
+    }
+    
+    /**
+     * Builds the search index from the text of every entry that has an id,
+     * spread across all of the processors.
+     */
+    private void buildSearchIndex() {
+        searchIndex.build(entryIds, Finder.getSharedPool());
+        searchIndexStale = false;
+    }
+    
+    /**
+     * Builds the index again from every entry, without checking them. Used
+     * after the entries were replaced or tagged again.
+     */
+    public void indexEntries() {
+        indexReferences();
+        buildSearchIndex();
+    }
+    
+    /**
+     * Builds the index again from every entry, except for the search index,
+     * which is left to be built on the first search.
+     */
+    private void indexReferences() {
+        clearIndex();
+        for (Entry entry : entries) {
+            indexEntry(entry);
+        }
+    }
+    
+    /**
+     * Returns the entry with the date. If more than one entry has the date,
+     * it is the first one.
+     * @param date the date
+     * @return the entry, or null if there isn't one
+     */
+    public Entry getEntry(String date) {
+        return dates.getFirst(date);
+    }
+    
+    /**
+     * Sets the text of the entry with the date, or adds a new entry if there
+     * isn't one. Only that entry is analyzed again, and the index only
+     * changes by the scriptures and topics it gained or lost, so the cost
+     * doesn't depend on how big the journal is. The listeners are told what
+     * changed.
+     * @param date the date of the entry
+     * @param text its text
+     * @return the entry
+     */
+    public Entry upsertEntry(String date, String text) {
+        return upsertEntry(dates.getFirst(date), date, text);
+    }
+    
+    /**
+     * Sets the text of the given entry, or adds a new entry with the date if
+     * there is no entry or it isn't in the journal any more. This is how one
+     * entry of a day is saved when the day has more than one. It is analyzed
+     * and indexed like upsertEntry(date, text).
+     * @param entry the entry, or null for a new one
+     * @param date the date of a new entry
+     * @param text the entry's text
+     * @return the entry
+     */
+    public Entry upsertEntry(Entry entry, String date, String text) {
+        EntryChange change;
+        
+        if (entry == null || entryIds.getId(entry) < 0) {
+            entry = new Entry();
+            entry.setDate(date);
+            entry.setText(text);
+            finder.analyze(entry);
+            entries.add(entry);
+            indexEntry(entry);
+            if (!searchIndexStale) {
+                searchIndex.add(entryIds.getId(entry), text);
+            }
+            change = EntryChange.added(entry);
+        } else {
+            Entry before = entry.copy();
+            entry.setText(text);
+            finder.analyze(entry);
+            int id = entryIds.add(entry);
+            references.update(id, before, entry);
+            if (!searchIndexStale) {
+                searchIndex.update(id, before.getText(), text);
+            }
+            change = EntryChange.changed(before, entry);
+        }
+        
+        for (Listener listener : listeners) {
+            listener.entryChanged(change);
+        }
+        return entry;
+    }
+    
+    /**
+     * Takes the entry out of the journal and the index, and out of the
+     * journal log if there is one. The listeners are told what changed.
+     * @param entry the entry to remove
+     * @return true if the entry was in the journal
+     * @throws IOException The log could not be written.
+     */
+    public boolean removeEntry(Entry entry) throws IOException {
+        if (!entries.remove(entry)) {
+            return false;
+        }
+        
+        int id = entryIds.remove(entry);
+        if (id >= 0) {
+            references.remove(id, entry);
+            if (!searchIndexStale) {
+                searchIndex.remove(id, entry.getText());
+            }
+        }
+        dates.remove(entry);
+        if (journalLog != null) {
+            journalLog.delete(entry);
+        }
+        
+        EntryChange change = EntryChange.removed(entry);
+        for (Listener listener : listeners) {
+            listener.entryChanged(change);
+        }
+        return true;
+    }
+    
+    /**
+     * Returns the entries whose text matches the query, in the order they
+     * were indexed. See SearchIndex for what a query can have in it.
+     * @param query the words to look for
+     * @return the matching entries
+     */
+    public List<Entry> search(String query) {
+        int[] ids = getSearchIndex().search(query);
+        List<Entry> found = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            found.add(entryIds.getEntry(id));
+        }
+        return found;
+    }
+    
+    /**
+     * Returns the entries that best match the query, best first. See
+     * SearchIndex.rank for how they are ranked.
+     * @param query the words to look for
+     * @param limit the most entries to return
+     * @return the best entries
+     */
+    public List<Entry> searchRanked(String query, int limit) {
+        return searchRanked(query, limit, 0);
+    }
+    
+    /**
+     * Returns the entries that best match the query, best first, also
+     * ranking the entries tagged with the topics the query is about. The
+     * topics are found in the query like they are in an entry.
+     * @param query the words to look for
+     * @param limit the most entries to return
+     * @param topicBoost how much more a topic counts than a word, or 0 to
+     *        leave the topics out
+     * @return the best entries
+     */
+    public List<Entry> searchRanked(String query, int limit, float topicBoost) {
+        List<Postings> topics = new ArrayList<>();
+        if (topicBoost > 0) {
+            Entry probe = new Entry();
+            probe.setText(query);
+            finder.parseForTopics(probe);
+            for (String topic : probe.getTopicsList()) {
+                topics.add(references.getTopic(topic));
+            }
+        }
+        
+        SearchIndex.Hit[] hits = getSearchIndex().rank(query, limit, topics, topicBoost);
+        List<Entry> found = new ArrayList<>(hits.length);
+        for (SearchIndex.Hit hit : hits) {
+            found.add(entryIds.getEntry(hit.getId()));
+        }
+        return found;
+    }
+    
+    /**
+     * Adds a listener that is told about every upsertEntry and removeEntry.
+     * @param listener the listener
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Imports the entries of the text document. The file is read a line at
+     * a time, so the whole of it is never held in memory.
+     * @throws IOException if the file wasn't read correctly.
+     */
+    public void importTxt() throws IOException {
+        entries = textDoc.readEntries();
+        analyzeEntries();
+    }
+    
+    /**
+     * Imports the entries of the text document using every processor. The
+     * file is memory mapped and split up at its separators, and each entry is
+     * analyzed as soon as it is parsed. The entries end up the same, and in
+     * the same order, as with importTxt.
+     * @throws IOException if the file wasn't read correctly.
+     */
+    public void importTxtInParallel() throws IOException {
+        entries = textDoc.readEntries(Finder.getSharedPool(), new EntryHandler() {
+            @Override
+            public void handle(Entry entry) {
+                finder.analyze(entry);
+            }
+        });
+        indexEntries();
+    }
+    
+    /**
+     * Finds the scriptures and topics of every entry, spread across all of
+     * the processors.
+     */
+    public void analyzeEntries() {
+        finder.analyzeAll(new ArrayList<>(entries));
+        indexEntries();
+    }
+    
+    /**
+     * Returns a copy of each of the entries with only its date and text.
+     * The copies can be analyzed on another thread while the journal is
+     * still in use, and then given back to retagEntries.
+     * @param entries entries of the journal
+     * @return the copies, in the same order
+     */
+    public static List<Entry> copyForAnalysis(List<Entry> entries) {
+        List<Entry> copies = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            Entry copy = new Entry();
+            copy.setDate(entry.getDate());
+            copy.setText(entry.getText());
+            copies.add(copy);
+        }
+        return copies;
+    }
+    
+    /**
+     * Gives the entries the scriptures and topics found in their analyzed
+     * copies, and builds the scripture and topic index again. Used to tag the
+     * entries again when the vocabulary changes. The text doesn't change, so
+     * the search index is kept. An entry that was removed since the copies
+     * were made is skipped, and so is one whose text changed, since
+     * upsertEntry already analyzed it with the new vocabulary.
+     * @param entries the entries the copies were made from
+     * @param analyzed the copies, analyzed with the new vocabulary
+     * @return the entries whose scriptures or topics changed
+     */
+    public List<Entry> retagEntries(List<Entry> entries, List<Entry> analyzed) {
+        Set<Entry> current = Collections.newSetFromMap(new IdentityHashMap<Entry, Boolean>());
+        current.addAll(this.entries);
+        List<Entry> changed = new ArrayList<>();
+        
+        for (int i = 0; i < entries.size(); ++i) {
+            Entry entry = entries.get(i);
+            Entry copy = analyzed.get(i);
+            if (!current.contains(entry) || !entry.getText().equals(copy.getText()) ||
+                    sameReferences(entry, copy)) {
+                continue;
+            }
+            entry.setScriptureList(copy.getScriptureList());
+            entry.removeAllTopics();
+            for (String topic : copy.getTopicsList()) {
+                entry.addTopic(topic);
+            }
+            changed.add(entry);
+        }
+        
+        references.clear();
+        for (Entry entry : this.entries) {
+            references.add(entryIds.getId(entry), entry);
+        }
+        return changed;
+    }
+    
+    /**
+     * Returns true if the entries have the same scriptures and topics, in
+     * the same order.
+     */
+    private static boolean sameReferences(Entry entry, Entry other) {
+        List<Scripture> scriptures = entry.getScriptureList();
+        List<Scripture> otherScriptures = other.getScriptureList();
+        if (scriptures.size() != otherScriptures.size() ||
+                !entry.getTopicsList().equals(other.getTopicsList())) {
+            return false;
+        }
+        for (int i = 0; i < scriptures.size(); ++i) {
+            if (!scriptures.get(i).getFullTitle().equals(otherScriptures.get(i).getFullTitle())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Exports a text document from textDoc
+     * @throws IOException if the file wasn't saved correctly.
+     */
+    public void exportTxt() throws IOException {
+        textDoc.setEntries(entries);
+        textDoc.save();
+    }
+    
+    /**
+     * Returns xmlFile
+     * @return xmlFile
+     */
+    public XML getXmlFile() {
+        return xmlFile;
+    }
+
+    /**
+     * Sets xmlFile
+     * @param xmlFile 
+     */
+    public void setXmlFile(XML xmlFile) {
+        this.xmlFile = xmlFile;
+    }
+
+    /**
+     * Returns the list of entries
+     * @return entries
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Sets the list of entries
+     * @param entries 
+     */
+    public void setEntries(List<Entry> entries) {
+        this.entries = entries;
+        indexEntries();
+    }
+    
+    /**
+     * Returns the journal log, or null if the journal isn't kept in one.
+     * @return journalLog
+     */
+    public JournalLog getJournalLog() {
+        return journalLog;
+    }
+    
+    /**
+     * Sets the journal log, closing the one before it.
+     * @param journalLog the new journal log, or null for none
+     * @throws IOException if the old log doesn't close
+     */
+    public void setJournalLog(JournalLog journalLog) throws IOException {
+        if (this.journalLog != null && this.journalLog != journalLog) {
+            this.journalLog.close();
+        }
+        this.journalLog = journalLog;
+    }
+    
+    /**
+     * Returns the binary journal file
+     * @return binaryFile
+     */
+    public BinaryJournal getBinaryFile() {
+        return binaryFile;
+    }
+    
+    /**
+     * Sets the binary journal file
+     * @param binaryFile 
+     */
+    public void setBinaryFile(BinaryJournal binaryFile) {
+        this.binaryFile = binaryFile;
+    }
+    
+    /**
+     * Returns the ids the index knows the entries by
+     * @return entryIds
+     */
+    public EntryIds getEntryIds() {
+        return entryIds;
+    }
+    
+    /**
+     * Returns the index of the entries by date
+     * @return dates
+     */
+    public DateIndex getDateIndex() {
+        return dates;
+    }
+    
+    /**
+     * Returns the index of the entries by scripture and topic
+     * @return references
+     */
+    public ReferenceIndex getReferenceIndex() {
+        return references;
+    }
+    
+    /**
+     * Returns the index of the entries by the words in their text, building
+     * it first if it hasn't been since the journal was read.
+     * @return searchIndex
+     */
+    public SearchIndex getSearchIndex() {
+        if (searchIndexStale) {
+            buildSearchIndex();
+        }
+        return searchIndex;
+    }
+    
+    /**
+     * Returns the textDoc
+     * @return textDoc
+     */
+    public TextFile getTextDoc() {
+        return textDoc;
+    }
+
+    /**
+     * Sets the textDoc
+     * @param textDoc 
+     */
+    public void setTextDoc(TextFile textDoc) {
+        this.textDoc = textDoc;
+    }
+
+    /**
+     * Returns the finder.
+     * @return finder
+     */
+    public Finder getFinder() {
+        return finder;
+    }
 }
\ No newline at end of file
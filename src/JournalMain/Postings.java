@@ -0,0 +1,102 @@
+package JournalMain;
+
+import java.util.Arrays;
+
+/**
+ * The ids of the entries under one key of a ReferenceIndex, kept sorted in
+ * an int array with no duplicates. Reading it never allocates, so the ids
+ * can be walked with size and get, and contains is a binary search.
+ * @author Grant
+ */
+public class Postings {
+    /**
+     * Postings with no entries, given back for a key that isn't indexed.
+     */
+    public static final Postings EMPTY = new Postings();
+
+    private int[] ids = new int[4];
+    private int size;
+
+    /**
+     * Returns how many entries there are.
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if there are no entries.
+     * @return true or false
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the id at the index, in increasing order of ids.
+     * @param index which id
+     * @return the entry id
+     */
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return ids[index];
+    }
+
+    /**
+     * Returns true if the entry with the id is in the postings.
+     * @param id the entry id
+     * @return true or false
+     */
+    public boolean contains(int id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    /**
+     * Returns a copy of the ids.
+     * @return the ids in increasing order
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Adds the id. Ids are usually added in increasing order, which only
+     * appends.
+     * @param id the entry id
+     * @return true if the id wasn't there already
+     */
+    boolean add(int id) {
+        int index = size > 0 && ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            index = -index - 1;
+        } else if (index < size) {
+            return false;
+        }
+
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        ids[index] = id;
+        ++size;
+        return true;
+    }
+
+    /**
+     * Removes the id.
+     * @param id the entry id
+     * @return true if the id was there
+     */
+    boolean remove(int id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        --size;
+        return true;
+    }
+}
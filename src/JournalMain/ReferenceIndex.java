@@ -0,0 +1,193 @@
+package JournalMain;
+
+import Document.Entry;
+import Document.Scripture;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the entries that cite a book, a chapter, a full reference, or a
+ * topic. Each of those keys has the sorted ids of its entries (see EntryIds
+ * and Postings), so "every entry citing Alma" is one hash lookup and what
+ * comes back is read in place.
+ * <p>
+ * Chapters and references are looked up by the same text the scripture
+ * holds: getBookAndChapter, like "Alma 32", and getFullTitle.
+ * @author Grant
+ */
+public class ReferenceIndex {
+    private static final int BOOK = 0;
+    private static final int CHAPTER = 1;
+    private static final int REFERENCE = 2;
+
+    private final Map<String, Postings> books = new HashMap<>();
+    private final Map<String, Postings> chapters = new HashMap<>();
+    private final Map<String, Postings> references = new HashMap<>();
+    private final Map<String, Postings> topics = new HashMap<>();
+
+    /**
+     * Adds the entry under each of its scriptures and topics.
+     * @param id the entry's id
+     * @param entry the entry
+     */
+    public void add(int id, Entry entry) {
+        for (Scripture scripture : entry.getScriptureList()) {
+            add(books, scripture.getBookName(), id);
+            add(chapters, scripture.getBookAndChapter(), id);
+            add(references, scripture.getFullTitle(), id);
+        }
+        for (String topic : entry.getTopicsList()) {
+            add(topics, topic, id);
+        }
+    }
+
+    /**
+     * Takes the entry out from under each of its scriptures and topics. The
+     * entry has to have the same scriptures and topics it was added with.
+     * @param id the entry's id
+     * @param entry the entry
+     */
+    public void remove(int id, Entry entry) {
+        for (Scripture scripture : entry.getScriptureList()) {
+            remove(books, scripture.getBookName(), id);
+            remove(chapters, scripture.getBookAndChapter(), id);
+            remove(references, scripture.getFullTitle(), id);
+        }
+        for (String topic : entry.getTopicsList()) {
+            remove(topics, topic, id);
+        }
+    }
+
+    /**
+     * Moves the entry to its new scriptures and topics, touching only the
+     * keys it gained or lost.
+     * @param id the entry's id
+     * @param before a copy of the entry from when it was last added or updated
+     * @param after the entry now
+     */
+    public void update(int id, Entry before, Entry after) {
+        patch(books, keys(before, BOOK), keys(after, BOOK), id);
+        patch(chapters, keys(before, CHAPTER), keys(after, CHAPTER), id);
+        patch(references, keys(before, REFERENCE), keys(after, REFERENCE), id);
+        patch(topics, new HashSet<>(before.getTopicsList()), new HashSet<>(after.getTopicsList()), id);
+    }
+
+    /**
+     * Empties the index.
+     */
+    public void clear() {
+        books.clear();
+        chapters.clear();
+        references.clear();
+        topics.clear();
+    }
+
+    /**
+     * Returns the entries citing any part of the book.
+     * @param bookName name of the book
+     * @return the entry ids
+     */
+    public Postings getBook(String bookName) {
+        return get(books, bookName);
+    }
+
+    /**
+     * Returns the entries citing any part of the chapter.
+     * @param bookAndChapter the book and chapter, like "Alma 32"
+     * @return the entry ids
+     */
+    public Postings getChapter(String bookAndChapter) {
+        return get(chapters, bookAndChapter);
+    }
+
+    /**
+     * Returns the entries citing the reference.
+     * @param fullTitle the scripture's full title
+     * @return the entry ids
+     */
+    public Postings getReference(String fullTitle) {
+        return get(references, fullTitle);
+    }
+
+    /**
+     * Returns the entries with the topic.
+     * @param topic the topic
+     * @return the entry ids
+     */
+    public Postings getTopic(String topic) {
+        return get(topics, topic);
+    }
+
+    /**
+     * Returns the books that are cited.
+     * @return book names
+     */
+    public Set<String> getBooks() {
+        return Collections.unmodifiableSet(books.keySet());
+    }
+
+    /**
+     * Returns the full references that are cited.
+     * @return full titles
+     */
+    public Set<String> getReferences() {
+        return Collections.unmodifiableSet(references.keySet());
+    }
+
+    /**
+     * Returns the topics that are used.
+     * @return topics
+     */
+    public Set<String> getTopics() {
+        return Collections.unmodifiableSet(topics.keySet());
+    }
+
+    /**
+     * Returns the book names, chapters or full titles of the entry's scriptures.
+     */
+    private static Set<String> keys(Entry entry, int kind) {
+        Set<String> keys = new HashSet<>();
+        for (Scripture scripture : entry.getScriptureList()) {
+            keys.add(kind == BOOK ? scripture.getBookName() :
+                     kind == CHAPTER ? scripture.getBookAndChapter() : scripture.getFullTitle());
+        }
+        return keys;
+    }
+
+    private static void patch(Map<String, Postings> map, Set<String> before, Set<String> after, int id) {
+        for (String key : before) {
+            if (!after.contains(key)) {
+                remove(map, key, id);
+            }
+        }
+        for (String key : after) {
+            if (!before.contains(key)) {
+                add(map, key, id);
+            }
+        }
+    }
+
+    private static Postings get(Map<String, Postings> map, String key) {
+        Postings postings = map.get(key);
+        return postings == null ? Postings.EMPTY : postings;
+    }
+
+    private static void add(Map<String, Postings> map, String key, int id) {
+        Postings postings = map.get(key);
+        if (postings == null) {
+            postings = new Postings();
+            map.put(key, postings);
+        }
+        postings.add(id);
+    }
+
+    private static void remove(Map<String, Postings> map, String key, int id) {
+        Postings postings = map.get(key);
+        if (postings != null && postings.remove(id) && postings.isEmpty()) {
+            map.remove(key);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package JournalMain;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Finds scripture references in a text in a single pass. It knows these forms
+ * (without caring about upper or lower case):
+ * <pre>
+ *   book 3            book chapter 3        book section 3
+ *   book 3:16         book chapter 3:16     book 3:16-18
+ *   v. 16             v.16-18
+ * </pre>
+ * The book, chapter and verses of each reference are handed out as ints, so
+ * no Strings are created while scanning.
+ * @author Grant
+ */
+public class ScriptureTokenizer {
+    /**
+     * The book id given for a stray verse ("v. 16"), which belongs to whatever
+     * book and chapter were mentioned last.
+     */
+    public static final int STRAY_VERSE = -1;
+
+    /**
+     * The number given for a verse that isn't in the reference.
+     */
+    public static final int NO_VERSE = 0;
+
+    private static final String CHAPTER = "chapter ";
+    private static final String SECTION = "section ";
+
+    private final CharTrie bookNames;
+
+    /**
+     * Listens for the references found during a scan.
+     */
+    public interface Listener {
+        /**
+         * Called for every reference found in the text.
+         * @param bookId id of the book or STRAY_VERSE
+         * @param chapter the chapter, or 0 for a stray verse
+         * @param startVerse the first verse or NO_VERSE
+         * @param endVerse the last verse of a range or NO_VERSE
+         */
+        void found(int bookId, int chapter, int startVerse, int endVerse);
+    }
+
+    /**
+     * Constructs a tokenizer that knows books by the given names.
+     * @param bookAliases lower case book names, each with the id of its book
+     */
+    public ScriptureTokenizer(Map<String, Integer> bookAliases) {
+        CharTrie.Builder builder = new CharTrie.Builder();
+        for (Map.Entry<String, Integer> pairs : bookAliases.entrySet()) {
+            builder.add(pairs.getKey(), pairs.getValue());
+        }
+        bookNames = builder.build();
+    }
+
+    private ScriptureTokenizer(CharTrie bookNames) {
+        this.bookNames = bookNames;
+    }
+
+    /**
+     * Writes the tokenizer to a vocabulary snapshot.
+     * @param out where to write
+     * @throws IOException writing error
+     */
+    void write(DataOutputStream out) throws IOException {
+        bookNames.write(out);
+    }
+
+    /**
+     * Reads a tokenizer written by write.
+     * @param in the snapshot, positioned at the tokenizer
+     * @return the tokenizer
+     */
+    static ScriptureTokenizer read(ByteBuffer in) {
+        return new ScriptureTokenizer(CharTrie.read(in));
+    }
+
+    /**
+     * Scans the text once and tells the listener about every reference found,
+     * from left to right.
+     * @param text the text to scan
+     * @param listener who to tell about each reference
+     */
+    public void scan(CharSequence text, Listener listener) {
+        Scan scan = new Scan(text);
+
+        while (scan.position < text.length()) {
+            // References only start at the beginning of a word.
+            int start = scan.position;
+            if (start > 0 && TopicMatcher.isWordChar(text.charAt(start - 1))) {
+                ++scan.position;
+            } else if (scan.readBookReference() || scan.readStrayVerse()) {
+                listener.found(scan.bookId, scan.chapter, scan.startVerse, scan.endVerse);
+            } else {
+                scan.position = start + 1;
+            }
+        }
+    }
+
+    /**
+     * The state of one scan. The last reference read is kept in plain ints,
+     * which get handed to the listener.
+     */
+    private class Scan {
+        final CharSequence text;
+        int position;
+
+        int bookId;
+        int chapter;
+        int startVerse;
+        int endVerse;
+
+        // The number that readNumber read last.
+        int number;
+
+        Scan(CharSequence text) {
+            this.text = text;
+        }
+
+        /**
+         * Tries to read "book [chapter |section ]N[:M[-K]]" at the position.
+         * When a book goes by names where one starts the other (like "gen" and
+         * "gen."), the longest one followed by a number wins.
+         * @return true if a reference was read
+         */
+        boolean readBookReference() {
+            int node = CharTrie.ROOT;
+            int found = -1;
+            int foundBook = 0, foundChapter = 0, foundStart = 0, foundEnd = 0;
+
+            for (int i = position; i < text.length(); ++i) {
+                node = bookNames.child(node, Character.toLowerCase(text.charAt(i)));
+                if (node == CharTrie.NONE) {
+                    break;
+                }
+
+                if (bookNames.values[node] != CharTrie.NONE) {
+                    int end = readNumbers(i + 1);
+                    if (end >= 0) {
+                        found = end;
+                        foundBook = bookNames.values[node];
+                        foundChapter = chapter;
+                        foundStart = startVerse;
+                        foundEnd = endVerse;
+                    }
+                }
+            }
+
+            if (found < 0) {
+                return false;
+            }
+
+            position = found;
+            bookId = foundBook;
+            chapter = foundChapter;
+            startVerse = foundStart;
+            endVerse = foundEnd;
+            return true;
+        }
+
+        /**
+         * Tries to read "v. N[-K]" or "v.N[-K]" at the position.
+         * @return true if a stray verse was read
+         */
+        boolean readStrayVerse() {
+            int i = position;
+            if (i + 2 >= text.length() || Character.toLowerCase(text.charAt(i)) != 'v' ||
+                    text.charAt(i + 1) != '.') {
+                return false;
+            }
+
+            i += 2;
+            if (text.charAt(i) == ' ') {
+                ++i;
+            }
+
+            int end = readNumber(i);
+            if (end < 0) {
+                return false;
+            }
+
+            bookId = STRAY_VERSE;
+            chapter = 0;
+            startVerse = number;
+            position = readRangeEnd(end);
+            return true;
+        }
+
+        /**
+         * Reads " [chapter |section ]N[:M[-K]]" right after a book name.
+         * @return the index after the numbers or -1 if they aren't there
+         */
+        private int readNumbers(int i) {
+            if (i >= text.length() || text.charAt(i) != ' ') {
+                return -1;
+            }
+            ++i;
+
+            if (startsWith(i, CHAPTER)) {
+                i += CHAPTER.length();
+            } else if (startsWith(i, SECTION)) {
+                i += SECTION.length();
+            }
+
+            int end = readNumber(i);
+            if (end < 0) {
+                return -1;
+            }
+            chapter = number;
+            startVerse = NO_VERSE;
+            endVerse = NO_VERSE;
+
+            if (end < text.length() && text.charAt(end) == ':') {
+                int verseEnd = readNumber(end + 1);
+                if (verseEnd >= 0) {
+                    startVerse = number;
+                    return readRangeEnd(verseEnd);
+                }
+            }
+            return end;
+        }
+
+        /**
+         * Reads the "-K" that ends a verse range, if it's there.
+         * @return the index after the range, or the index given if there's no range
+         */
+        private int readRangeEnd(int i) {
+            endVerse = NO_VERSE;
+            if (i < text.length() && text.charAt(i) == '-') {
+                int end = readNumber(i + 1);
+                if (end >= 0 && number > startVerse) {
+                    endVerse = number;
+                    return end;
+                }
+            }
+            return i;
+        }
+
+        /**
+         * Reads a number into number. Numbers too big for an int are capped at
+         * Integer.MAX_VALUE.
+         * @return the index after the last digit or -1 if there's no digit there
+         */
+        private int readNumber(int i) {
+            int start = i;
+            long value = 0;
+
+            while (i < text.length() && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                value = Math.min(value * 10 + (text.charAt(i) - '0'), Integer.MAX_VALUE);
+                ++i;
+            }
+
+            if (i == start) {
+                return -1;
+            }
+            number = (int) value;
+            return i;
+        }
+
+        private boolean startsWith(int i, String word) {
+            if (i + word.length() > text.length()) {
+                return false;
+            }
+
+            for (int j = 0; j < word.length(); ++j) {
+                if (Character.toLowerCase(text.charAt(i + j)) != word.charAt(j)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,752 @@
+package JournalMain;
+
+import Document.Entry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds entries by the words in their text. The text is split into words,
+ * which are runs of letters and digits, lowercased. For every word the index
+ * keeps the ids of the entries that have it (see EntryIds) and where in each
+ * entry it is, counted in words, so a phrase can be matched as well as a
+ * single word.
+ * <p>
+ * A query is a list of words, all of which an entry has to have. A word
+ * ending in * matches every word starting with it, and words in double
+ * quotes have to come one right after another:
+ * <pre>
+ *   faith hope          entries with both words
+ *   repent*             repent, repentance, repented...
+ *   "faith in christ"   the phrase
+ * </pre>
+ * The words are kept sorted, so a prefix is a range of them. Building the
+ * index splits the entries across a fork-join pool, and afterwards entries
+ * can be added, changed, and removed one at a time.
+ * <p>
+ * rank orders the entries by how well they match instead, with BM25. Any
+ * of the words is enough to be ranked, and a word counts for more the more
+ * often an entry has it, the shorter the entry is, and the fewer entries
+ * have it. How many times each word is in each entry, and how long each
+ * entry is, are kept as the index is built, so ranking only adds up
+ * scores. Only the best entries are kept while they are added up, so the
+ * matches are never sorted.
+ * @author Grant
+ */
+public class SearchIndex {
+    /**
+     * A good boost for the topics of an entry, when they are ranked along
+     * with its words.
+     */
+    public static final float DEFAULT_TOPIC_BOOST = 2.0f;
+
+    private static final int[] NONE = new int[0];
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    /**
+     * Puts the worst hit first, so a heap of the best hits can drop it.
+     */
+    private static final Comparator<Hit> WORST_FIRST = new Comparator<Hit>() {
+        @Override
+        public int compare(Hit a, Hit b) {
+            return a.score != b.score ? Float.compare(a.score, b.score) : Integer.compare(b.id, a.id);
+        }
+    };
+
+    private NavigableMap<String, TermPostings> terms = new TreeMap<>();
+    private int[] lengths = new int[16];
+    private BitSet indexed = new BitSet();
+    private int documents;
+    private long totalLength;
+    private float[] norms;
+
+    /**
+     * An entry that was ranked, and its score.
+     */
+    public static class Hit {
+        private final int id;
+        private final float score;
+
+        Hit(int id, float score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        /**
+         * Returns the entry's id
+         * @return id
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Returns how well the entry matched; higher is better
+         * @return score
+         */
+        public float getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * Builds the index from every entry that has an id, replacing what was
+     * in it.
+     * @param ids the entries and their ids
+     * @param pool the pool to build on
+     */
+    public void build(EntryIds ids, ForkJoinPool pool) {
+        List<String> texts = new ArrayList<>(ids.size());
+        BitSet builtIndexed = new BitSet();
+        for (int id = 0; id < ids.size(); ++id) {
+            Entry entry = ids.getEntry(id);
+            texts.add(entry == null ? null : entry.getText());
+            builtIndexed.set(id, entry != null);
+        }
+
+        int[] builtLengths = new int[Math.max(16, texts.size())];
+        Map<String, TermPostings> built = texts.isEmpty() ?
+                new HashMap<String, TermPostings>() :
+                pool.invoke(new BuildTask(texts, builtLengths, 0, texts.size()));
+        long builtTotal = 0;
+        for (int length : builtLengths) {
+            builtTotal += length;
+        }
+
+        synchronized (this) {
+            terms = new TreeMap<>(built);
+            lengths = builtLengths;
+            indexed = builtIndexed;
+            documents = builtIndexed.cardinality();
+            totalLength = builtTotal;
+            norms = null;
+        }
+    }
+
+    /**
+     * Adds an entry's words.
+     * @param id the entry's id
+     * @param text the entry's text
+     */
+    public synchronized void add(int id, String text) {
+        List<String> words = text == null ? new ArrayList<String>() : tokenize(text);
+        setLength(id, words.size());
+        for (Map.Entry<String, IntList> term : positions(words).entrySet()) {
+            TermPostings postings = terms.get(term.getKey());
+            if (postings == null) {
+                postings = new TermPostings();
+                terms.put(term.getKey(), postings);
+            }
+            postings.add(id, term.getValue().toArray());
+        }
+    }
+
+    /**
+     * Takes out an entry's words. The text has to be what the entry was
+     * added with.
+     * @param id the entry's id
+     * @param text the text the entry was added with
+     */
+    public synchronized void remove(int id, String text) {
+        if (text != null) {
+            for (String word : positions(tokenize(text)).keySet()) {
+                TermPostings postings = terms.get(word);
+                if (postings != null && postings.remove(id) && postings.size == 0) {
+                    terms.remove(word);
+                }
+            }
+        }
+        if (indexed.get(id)) {
+            indexed.clear(id);
+            --documents;
+            totalLength -= lengths[id];
+            lengths[id] = 0;
+            norms = null;
+        }
+    }
+
+    /**
+     * Replaces the words of an entry whose text changed.
+     * @param id the entry's id
+     * @param before the text the entry was added with
+     * @param after its text now
+     */
+    public synchronized void update(int id, String before, String after) {
+        remove(id, before);
+        add(id, after);
+    }
+
+    /**
+     * Empties the index.
+     */
+    public synchronized void clear() {
+        terms = new TreeMap<>();
+        lengths = new int[16];
+        indexed = new BitSet();
+        documents = 0;
+        totalLength = 0;
+        norms = null;
+    }
+
+    /**
+     * Returns how many different words are in the index.
+     * @return the number of words
+     */
+    public synchronized int size() {
+        return terms.size();
+    }
+
+    /**
+     * Returns the entries matching the query (see the class comment).
+     * @param query the query
+     * @return the ids of the entries, in increasing order
+     */
+    public synchronized int[] search(String query) {
+        int[] result = null;
+        for (Clause clause : parse(query)) {
+            // A part with no words in it, like "&", doesn't narrow the search.
+            if (tokenize(clause.text).isEmpty()) {
+                continue;
+            }
+            int[] matches = clause.prefix ? findPrefix(clause.text) : findPhrase(clause.text);
+            result = result == null ? matches : intersect(result, matches);
+            if (result.length == 0) {
+                return NONE;
+            }
+        }
+        return result == null ? NONE : result;
+    }
+
+    /**
+     * Returns the entries that best match the query, best first. The query
+     * is written like for search, but an entry only needs one of its parts;
+     * a phrase counts for an entry that has the whole phrase, and a prefix
+     * for each word it matches.
+     * <p>
+     * Each set of fields is an extra part of the query that the entries in
+     * it match, like the entries with a topic the query is about. A field is
+     * scored like a word found once in an entry of average length, times the
+     * boost.
+     * @param query the query
+     * @param limit the most hits to return
+     * @param fields entries that match a part of the query outside their text
+     * @param fieldBoost how much more a field counts than a word
+     * @return the best hits, best first
+     */
+    public synchronized Hit[] rank(String query, int limit, List<Postings> fields, float fieldBoost) {
+        int capacity = lengths.length;
+        for (Postings field : fields) {
+            if (!field.isEmpty()) {
+                capacity = Math.max(capacity, field.get(field.size() - 1) + 1);
+            }
+        }
+        float[] scores = new float[capacity];
+        IntList scored = new IntList();
+        float[] lengthNorms = getNorms();
+
+        for (Clause clause : parse(query)) {
+            List<String> words = tokenize(clause.text);
+            if (words.isEmpty()) {
+                continue;
+            }
+            if (clause.prefix && words.size() == 1) {
+                String start = words.get(0);
+                for (TermPostings postings : terms.subMap(start, true, start + Character.MAX_VALUE, true).values()) {
+                    score(postings, null, lengthNorms, scores, scored);
+                }
+            } else if (words.size() == 1) {
+                TermPostings postings = terms.get(words.get(0));
+                if (postings != null) {
+                    score(postings, null, lengthNorms, scores, scored);
+                }
+            } else {
+                int[] matches = findPhrase(clause.text);
+                for (int i = 0; i < words.size() && matches.length > 0; ++i) {
+                    score(terms.get(words.get(i)), matches, lengthNorms, scores, scored);
+                }
+            }
+        }
+
+        if (fieldBoost > 0) {
+            for (Postings field : fields) {
+                float score = fieldBoost * idf(field.size());
+                for (int i = 0; i < field.size(); ++i) {
+                    addScore(field.get(i), score, scores, scored);
+                }
+            }
+        }
+
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.max(1, limit), WORST_FIRST);
+        for (int i = 0; i < scored.size && limit > 0; ++i) {
+            int doc = scored.values[i];
+            if (best.size() < limit) {
+                best.add(new Hit(doc, scores[doc]));
+            } else {
+                Hit worst = best.peek();
+                if (scores[doc] > worst.score || scores[doc] == worst.score && doc < worst.id) {
+                    best.poll();
+                    best.add(new Hit(doc, scores[doc]));
+                }
+            }
+        }
+
+        Hit[] hits = new Hit[best.size()];
+        for (int i = hits.length - 1; i >= 0; --i) {
+            hits[i] = best.poll();
+        }
+        return hits;
+    }
+
+    /**
+     * Returns the entries with the words one right after another. A single
+     * word is just that word.
+     * @param phrase the words
+     * @return the ids of the entries, in increasing order
+     */
+    public synchronized int[] findPhrase(String phrase) {
+        List<String> words = tokenize(phrase);
+        if (words.isEmpty()) {
+            return NONE;
+        }
+
+        TermPostings[] postings = new TermPostings[words.size()];
+        for (int i = 0; i < postings.length; ++i) {
+            postings[i] = terms.get(words.get(i));
+            if (postings[i] == null) {
+                return NONE;
+            }
+        }
+        if (postings.length == 1) {
+            return Arrays.copyOf(postings[0].docs, postings[0].size);
+        }
+
+        IntList matches = new IntList();
+        TermPostings first = postings[0];
+        int[] indexes = new int[postings.length];
+        for (int d = 0; d < first.size; ++d) {
+            int doc = first.docs[d];
+            indexes[0] = d;
+            boolean found = true;
+            for (int i = 1; i < postings.length && found; ++i) {
+                indexes[i] = postings[i].indexOf(doc);
+                found = indexes[i] >= 0;
+            }
+            if (found && hasPhrase(postings, indexes)) {
+                matches.add(doc);
+            }
+        }
+        return matches.toArray();
+    }
+
+    /**
+     * Returns the entries with a word starting with the prefix.
+     * @param prefix the start of the word
+     * @return the ids of the entries, in increasing order
+     */
+    public synchronized int[] findPrefix(String prefix) {
+        List<String> words = tokenize(prefix);
+        if (words.size() != 1) {
+            return words.isEmpty() ? NONE : findPhrase(prefix);
+        }
+
+        String start = words.get(0);
+        BitSet docs = new BitSet();
+        for (TermPostings postings : terms.subMap(start, true, start + Character.MAX_VALUE, true).values()) {
+            for (int d = 0; d < postings.size; ++d) {
+                docs.set(postings.docs[d]);
+            }
+        }
+
+        int[] result = new int[docs.cardinality()];
+        for (int i = 0, doc = docs.nextSetBit(0); doc >= 0; doc = docs.nextSetBit(doc + 1)) {
+            result[i++] = doc;
+        }
+        return result;
+    }
+
+    /**
+     * Adds the word's score to each entry that has it, or only to the
+     * entries in docs if it isn't null.
+     */
+    private void score(TermPostings postings, int[] docs, float[] lengthNorms, float[] scores, IntList scored) {
+        float idf = idf(postings.size);
+        int count = docs == null ? postings.size : docs.length;
+        for (int i = 0; i < count; ++i) {
+            int index = docs == null ? i : postings.indexOf(docs[i]);
+            int doc = postings.docs[index];
+            int frequency = postings.starts[index + 1] - postings.starts[index];
+            addScore(doc, idf * frequency * (K1 + 1) / (frequency + lengthNorms[doc]), scores, scored);
+        }
+    }
+
+    private static void addScore(int doc, float score, float[] scores, IntList scored) {
+        if (scores[doc] == 0) {
+            scored.add(doc);
+        }
+        scores[doc] += score;
+    }
+
+    /**
+     * Returns how much a word found in that many entries counts. It is
+     * always more than 0.
+     */
+    private float idf(int frequency) {
+        return (float) Math.log(1 + (documents - frequency + 0.5) / (frequency + 0.5));
+    }
+
+    /**
+     * Returns the part of each entry's score that depends on its length,
+     * working them out again if an entry was added, changed or removed.
+     */
+    private float[] getNorms() {
+        if (norms == null || norms.length != lengths.length) {
+            float average = documents == 0 ? 1 : Math.max(1, (float) totalLength / documents);
+            norms = new float[lengths.length];
+            for (int id = 0; id < lengths.length; ++id) {
+                norms[id] = K1 * (1 - B + B * lengths[id] / average);
+            }
+        }
+        return norms;
+    }
+
+    /**
+     * Keeps the number of words in the entry, counting it as an entry if it
+     * wasn't one.
+     */
+    private void setLength(int id, int length) {
+        if (id >= lengths.length) {
+            lengths = Arrays.copyOf(lengths, Math.max(id + 1, lengths.length * 2));
+        }
+        if (indexed.get(id)) {
+            totalLength -= lengths[id];
+        } else {
+            indexed.set(id);
+            ++documents;
+        }
+        lengths[id] = length;
+        totalLength += length;
+        norms = null;
+    }
+
+    /**
+     * Splits the query into its words, phrases and prefixes.
+     */
+    private static List<Clause> parse(String query) {
+        List<Clause> clauses = new ArrayList<>();
+        int index = 0;
+        while (index < query.length()) {
+            char c = query.charAt(index);
+            if (Character.isWhitespace(c)) {
+                ++index;
+            } else if (c == '"') {
+                int end = query.indexOf('"', index + 1);
+                end = end < 0 ? query.length() : end;
+                clauses.add(new Clause(query.substring(index + 1, end), false));
+                index = end + 1;
+            } else {
+                int end = index;
+                while (end < query.length() && !Character.isWhitespace(query.charAt(end))) {
+                    ++end;
+                }
+                String word = query.substring(index, end);
+                clauses.add(word.endsWith("*") ? new Clause(word.substring(0, word.length() - 1), true)
+                                               : new Clause(word, false));
+                index = end;
+            }
+        }
+        return clauses;
+    }
+
+    /**
+     * Splits the text into lowercase words of letters and digits.
+     * @param text the text
+     * @return the words in order
+     */
+    public static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); ++i) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Returns where each of the words is.
+     */
+    private static Map<String, IntList> positions(List<String> words) {
+        Map<String, IntList> positions = new HashMap<>();
+        for (int i = 0; i < words.size(); ++i) {
+            IntList list = positions.get(words.get(i));
+            if (list == null) {
+                list = new IntList();
+                positions.put(words.get(i), list);
+            }
+            list.add(i);
+        }
+        return positions;
+    }
+
+    /**
+     * Returns true if some position of the first word has each of the other
+     * words right after it, in the entries at the indexes.
+     */
+    private static boolean hasPhrase(TermPostings[] postings, int[] indexes) {
+        TermPostings first = postings[0];
+        for (int p = first.starts[indexes[0]]; p < first.starts[indexes[0] + 1]; ++p) {
+            int start = first.positions[p];
+            boolean found = true;
+            for (int i = 1; i < postings.length && found; ++i) {
+                found = postings[i].hasPosition(indexes[i], start + i);
+            }
+            if (found) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length;) {
+            if (a[i] < b[j]) {
+                ++i;
+            } else if (a[i] > b[j]) {
+                ++j;
+            } else {
+                result[count++] = a[i];
+                ++i;
+                ++j;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * The entries that have one word, sorted by id, with where the word is
+     * in each of them. The positions of all of the entries are kept in one
+     * array; those of the entry at index i run from starts[i] up to
+     * starts[i + 1].
+     */
+    private static class TermPostings {
+        int[] docs = new int[2];
+        int[] starts = new int[3];
+        int[] positions = new int[4];
+        int size;
+
+        /**
+         * Adds a position of the word in the entry. The entry is either the
+         * last one or has a higher id than all of them.
+         */
+        void addPosition(int doc, int position) {
+            if (size == 0 || docs[size - 1] != doc) {
+                if (size == docs.length) {
+                    docs = Arrays.copyOf(docs, size * 2);
+                    starts = Arrays.copyOf(starts, size * 2 + 1);
+                }
+                docs[size] = doc;
+                starts[size + 1] = starts[size];
+                ++size;
+            }
+            int count = starts[size];
+            if (count == positions.length) {
+                positions = Arrays.copyOf(positions, count * 2);
+            }
+            positions[count] = position;
+            starts[size] = count + 1;
+        }
+
+        /**
+         * Adds the entry with its positions wherever its id belongs.
+         */
+        void add(int doc, int[] where) {
+            if (size == 0 || docs[size - 1] < doc) {
+                for (int position : where) {
+                    addPosition(doc, position);
+                }
+                return;
+            }
+            remove(doc);
+            int index = -Arrays.binarySearch(docs, 0, size, doc) - 1;
+
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                starts = Arrays.copyOf(starts, size * 2 + 1);
+            }
+            int count = starts[size];
+            if (count + where.length > positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(positions.length * 2, count + where.length));
+            }
+            int from = starts[index];
+            System.arraycopy(positions, from, positions, from + where.length, count - from);
+            System.arraycopy(where, 0, positions, from, where.length);
+            System.arraycopy(docs, index, docs, index + 1, size - index);
+            System.arraycopy(starts, index, starts, index + 1, size - index + 1);
+            docs[index] = doc;
+            ++size;
+            for (int i = index + 1; i <= size; ++i) {
+                starts[i] += where.length;
+            }
+        }
+
+        boolean remove(int doc) {
+            int index = indexOf(doc);
+            if (index < 0) {
+                return false;
+            }
+            int from = starts[index];
+            int length = starts[index + 1] - from;
+            System.arraycopy(positions, from + length, positions, from, starts[size] - from - length);
+            System.arraycopy(docs, index + 1, docs, index, size - index - 1);
+            System.arraycopy(starts, index + 1, starts, index, size - index);
+            --size;
+            for (int i = index; i <= size; ++i) {
+                starts[i] -= length;
+            }
+            return true;
+        }
+
+        int indexOf(int doc) {
+            return Arrays.binarySearch(docs, 0, size, doc);
+        }
+
+        /**
+         * Returns true if the word is at the position in the entry at the
+         * index.
+         */
+        boolean hasPosition(int index, int position) {
+            return Arrays.binarySearch(positions, starts[index], starts[index + 1], position) >= 0;
+        }
+
+        /**
+         * Adds the other postings after these; all of their ids are higher.
+         */
+        void append(TermPostings other) {
+            int count = starts[size];
+            int otherCount = other.starts[other.size];
+            if (size + other.size > docs.length) {
+                docs = Arrays.copyOf(docs, size + other.size);
+                starts = Arrays.copyOf(starts, size + other.size + 1);
+            }
+            if (count + otherCount > positions.length) {
+                positions = Arrays.copyOf(positions, count + otherCount);
+            }
+            System.arraycopy(other.docs, 0, docs, size, other.size);
+            System.arraycopy(other.positions, 0, positions, count, otherCount);
+            for (int i = 1; i <= other.size; ++i) {
+                starts[size + i] = other.starts[i] + count;
+            }
+            size += other.size;
+        }
+    }
+
+    /**
+     * One part of a query: a word or phrase, or the start of a word.
+     */
+    private static class Clause {
+        final String text;
+        final boolean prefix;
+
+        Clause(String text, boolean prefix) {
+            this.text = text;
+            this.prefix = prefix;
+        }
+    }
+
+    /**
+     * A growing list of ints.
+     */
+    private static class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Indexes a range of entries, and keeps how many words each has. Small
+     * ranges are indexed by one worker; bigger ones are split in halves and
+     * the halves are merged, which only appends since the second half's ids
+     * are all higher.
+     */
+    private static class BuildTask extends RecursiveTask<Map<String, TermPostings>> {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 256;
+
+        private final List<String> texts;
+        private final int[] lengths;
+        private final int start;
+        private final int end;
+
+        BuildTask(List<String> texts, int[] lengths, int start, int end) {
+            this.texts = texts;
+            this.lengths = lengths;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Map<String, TermPostings> compute() {
+            if (end - start <= THRESHOLD) {
+                Map<String, TermPostings> built = new HashMap<>();
+                for (int id = start; id < end; ++id) {
+                    String text = texts.get(id);
+                    if (text == null) {
+                        continue;
+                    }
+                    List<String> words = tokenize(text);
+                    lengths[id] = words.size();
+                    for (int i = 0; i < words.size(); ++i) {
+                        TermPostings postings = built.get(words.get(i));
+                        if (postings == null) {
+                            postings = new TermPostings();
+                            built.put(words.get(i), postings);
+                        }
+                        postings.addPosition(id, i);
+                    }
+                }
+                return built;
+            }
+
+            int middle = (start + end) >>> 1;
+            BuildTask second = new BuildTask(texts, lengths, middle, end);
+            second.fork();
+            Map<String, TermPostings> built = new BuildTask(texts, lengths, start, middle).compute();
+            for (Map.Entry<String, TermPostings> term : second.join().entrySet()) {
+                TermPostings postings = built.get(term.getKey());
+                if (postings == null) {
+                    built.put(term.getKey(), term.getValue());
+                } else {
+                    postings.append(term.getValue());
+                }
+            }
+            return built;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package JournalMain;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Finds every topic variant in a text in one pass using an Aho-Corasick
+ * automaton. Each variant leads straight to the id of its topic, so the cost
+ * of a scan depends on the length of the text and not on how many variants
+ * there are. Matches have to start and end on a word boundary.
+ * @author Grant
+ */
+public class TopicMatcher {
+    private final String[] topicNames;
+    private final CharTrie trie;
+    private final int[] fail;
+    private final int[] output;
+
+    /**
+     * Listens for the topics found during a scan.
+     */
+    public interface Listener {
+        /**
+         * Called for every variant found in the text.
+         * @param topicId the id of the topic the variant belongs to
+         * @param start index of the first character of the variant
+         * @param end index after the last character of the variant
+         */
+        void found(int topicId, int start, int end);
+    }
+
+    /**
+     * Constructs the automaton from a map of topics to their variants.
+     * Topic ids are handed out in alphabetical order of the topic names.
+     * @param topics the topics with all of their variants
+     */
+    public TopicMatcher(Map<String, List<String>> topics) {
+        Map<String, List<String>> sorted = new TreeMap<>(topics);
+        topicNames = sorted.keySet().toArray(new String[sorted.size()]);
+
+        CharTrie.Builder builder = new CharTrie.Builder();
+        int id = 0;
+        for (List<String> variants : sorted.values()) {
+            for (String variant : variants) {
+                builder.add(variant, id);
+            }
+            ++id;
+        }
+        trie = builder.build();
+
+        fail = new int[trie.size()];
+        output = new int[trie.size()];
+        linkFailures();
+    }
+
+    /**
+     * Constructs the automaton from parts that are already built.
+     */
+    private TopicMatcher(String[] topicNames, CharTrie trie, int[] fail, int[] output) {
+        this.topicNames = topicNames;
+        this.trie = trie;
+        this.fail = fail;
+        this.output = output;
+    }
+
+    /**
+     * Writes the whole automaton to a vocabulary snapshot, so it doesn't have
+     * to be built again next time.
+     * @param out where to write
+     * @throws IOException writing error
+     */
+    void write(DataOutputStream out) throws IOException {
+        VocabularySnapshot.writeStrings(out, topicNames);
+        trie.write(out);
+        VocabularySnapshot.writeInts(out, fail);
+        VocabularySnapshot.writeInts(out, output);
+    }
+
+    /**
+     * Reads an automaton written by write.
+     * @param in the snapshot, positioned at the automaton
+     * @return the automaton
+     */
+    static TopicMatcher read(ByteBuffer in) {
+        return new TopicMatcher(VocabularySnapshot.readStrings(in), CharTrie.read(in),
+                                VocabularySnapshot.readInts(in), VocabularySnapshot.readInts(in));
+    }
+
+    /**
+     * Finds the failure link of every node (the longest proper suffix that is
+     * also in the trie) and the closest suffix that is a whole variant.
+     */
+    private void linkFailures() {
+        Queue<Integer> queue = new ArrayDeque<>();
+        output[CharTrie.ROOT] = CharTrie.NONE;
+
+        for (int e = trie.firstEdge[CharTrie.ROOT]; e < trie.firstEdge[CharTrie.ROOT + 1]; ++e) {
+            int child = trie.edgeTargets[e];
+            fail[child] = CharTrie.ROOT;
+            output[child] = CharTrie.NONE;
+            queue.add(child);
+        }
+
+        // Breadth first, so every shorter suffix is linked before it is needed.
+        while (!queue.isEmpty()) {
+            int node = queue.remove();
+            for (int e = trie.firstEdge[node]; e < trie.firstEdge[node + 1]; ++e) {
+                char c = trie.edgeChars[e];
+                int child = trie.edgeTargets[e];
+
+                int suffix = fail[node];
+                while (suffix != CharTrie.ROOT && trie.child(suffix, c) == CharTrie.NONE) {
+                    suffix = fail[suffix];
+                }
+                int link = trie.child(suffix, c);
+                fail[child] = link == CharTrie.NONE ? CharTrie.ROOT : link;
+                output[child] = trie.values[fail[child]] != CharTrie.NONE ?
+                        fail[child] : output[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Scans the text once and tells the listener about every variant that
+     * sits on word boundaries.
+     * @param text the text to scan
+     * @param listener who to tell about each match
+     */
+    public void scan(CharSequence text, Listener listener) {
+        int node = CharTrie.ROOT;
+        int length = text.length();
+
+        for (int i = 0; i < length; ++i) {
+            char c = text.charAt(i);
+            int next = trie.child(node, c);
+            while (next == CharTrie.NONE && node != CharTrie.ROOT) {
+                node = fail[node];
+                next = trie.child(node, c);
+            }
+            node = next == CharTrie.NONE ? CharTrie.ROOT : next;
+
+            // The end has to be a word boundary for any of the matches here.
+            if (i + 1 < length && isWordChar(text.charAt(i + 1))) {
+                continue;
+            }
+
+            int match = trie.values[node] != CharTrie.NONE ? node : output[node];
+            while (match != CharTrie.NONE) {
+                int start = i + 1 - trie.depths[match];
+                if (start == 0 || !isWordChar(text.charAt(start - 1))) {
+                    listener.found(trie.values[match], start, i + 1);
+                }
+                match = output[match];
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the topic with the given id.
+     * @param topicId id of the topic
+     * @return the topic's name
+     */
+    public String getTopicName(int topicId) {
+        return topicNames[topicId];
+    }
+
+    /**
+     * Returns how many topics the matcher knows about.
+     * @return number of topics
+     */
+    public int getTopicCount() {
+        return topicNames.length;
+    }
+
+    /**
+     * Letters and digits make up words. Anything else is a boundary.
+     * @param c the character in question
+     * @return true if the character is part of a word
+     */
+    static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+}
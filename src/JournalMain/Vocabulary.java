@@ -0,0 +1,255 @@
+package JournalMain;
+
+import Document.Scripture;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything a Finder knows: the canon of books, the names each book goes by,
+ * and the topics with their variants, along with the tokenizer and matcher
+ * built from them. A vocabulary never changes once it is made, so one can be
+ * shared by any number of threads and Finders without locking.
+ * @author Grant
+ */
+public final class Vocabulary {
+    private static Vocabulary defaultVocabulary;
+
+    private final Canon canon;
+    private final Map<String, List<String>> topics;
+    private final Map<String, List<String>> alternativeBookNames;
+
+    // Every lower case name a book goes by, pointing at the book's id.
+    private final Map<String, Integer> bookAliases;
+
+    private final ScriptureTokenizer scriptureTokenizer;
+    private final TopicMatcher topicMatcher;
+
+    /**
+     * Constructs a vocabulary from the books and their chapter counts, the
+     * topics and the alternative book names. The maps are copied.
+     * @param books each book with the number of chapters as its chapter
+     * @param topics each topic with its variants
+     * @param alternativeBookNames each book with all the names it goes by
+     */
+    public Vocabulary(List<Scripture> books, Map<String, List<String>> topics,
+                      Map<String, List<String>> alternativeBookNames) {
+        this.canon = new Canon(books);
+        this.topics = copy(topics);
+        this.alternativeBookNames = copy(alternativeBookNames);
+        this.bookAliases = buildBookAliases(canon, this.alternativeBookNames);
+        this.scriptureTokenizer = new ScriptureTokenizer(bookAliases);
+        this.topicMatcher = new TopicMatcher(this.topics);
+    }
+
+    /**
+     * Constructs a vocabulary from parts that were already built, like the
+     * ones read back from a snapshot.
+     */
+    Vocabulary(Canon canon, Map<String, List<String>> topics,
+               Map<String, List<String>> alternativeBookNames, Map<String, Integer> bookAliases,
+               ScriptureTokenizer scriptureTokenizer, TopicMatcher topicMatcher) {
+        this.canon = canon;
+        this.topics = topics;
+        this.alternativeBookNames = alternativeBookNames;
+        this.bookAliases = bookAliases;
+        this.scriptureTokenizer = scriptureTokenizer;
+        this.topicMatcher = topicMatcher;
+    }
+
+    /**
+     * Returns the vocabulary named in the properties file, which is the one
+     * bundled with the program unless the file says otherwise. It is only
+     * loaded once and then shared.
+     * @return the default vocabulary
+     * @throws IOException if any reading errors occurred
+     */
+    public static synchronized Vocabulary getDefault() throws IOException {
+        if (defaultVocabulary == null) {
+            defaultVocabulary = VocabularyLoader.fromProperties().load();
+        }
+        return defaultVocabulary;
+    }
+
+    /**
+     * Reads a vocabulary from its three files. A file that can't be read
+     * leaves that part of the vocabulary empty.
+     * @param books the file with each book and its chapter count
+     * @param terms the file with each topic and its variants
+     * @param bookNames the file with each book and its alternative names
+     * @return the new vocabulary
+     * @throws IOException if any reading errors occurred
+     */
+    public static Vocabulary read(File books, File terms, File bookNames) throws IOException {
+        return new Vocabulary(readScripturesFile(open(books)), readFileToMap(open(terms)),
+                              readFileToMap(open(bookNames)));
+    }
+
+    private static BufferedReader open(File file) throws FileNotFoundException {
+        return file.canRead() ? new BufferedReader(new FileReader(file)) : null;
+    }
+
+    /**
+     * This is used to read in the file that contains the books and the
+     * chapter limit in each book. The reader is closed when done.
+     * @param bf the file, or null to read nothing
+     * @return the books with their chapter counts
+     * @throws IOException reading error
+     */
+    static List<Scripture> readScripturesFile(BufferedReader bf) throws IOException {
+        List<Scripture> scriptures = new ArrayList<>();
+
+        if (bf != null) {
+            try {
+                String line = "";
+                while ((line = bf.readLine()) != null) {
+                    scriptures.add(new Scripture(line.substring(0, line.indexOf(":")),
+                                                 line.substring(line.indexOf(":") + 1, line.length())));
+                }
+            } finally {
+                bf.close();
+            }
+        }
+
+        return scriptures;
+    }
+
+    /**
+     * This is used to read in a file of keys, each with a list of values
+     * (like the topics or the book names). The reader is closed when done.
+     * @param bf the file, or null to read nothing
+     * @return the keys with their values
+     * @throws IOException reading error
+     */
+    static Map<String, List<String>> readFileToMap(BufferedReader bf) throws IOException {
+        Map<String, List<String>> map = new HashMap<>();
+
+        if (bf != null) {
+            try {
+                String line = "";
+                while ((line = bf.readLine()) != null) {
+                    List<String> valuesList = new ArrayList<>();
+
+                    String key = line.substring(0, line.indexOf(":"));
+                    String[] values = line.substring(line.indexOf(":") + 1, line.length()).split(",");
+
+                    // Find all the variations of the key!
+                    for (int i = 0; i < values.length; ++i) {
+                        valuesList.add(values[i]);
+                    }
+                    map.put(key, valuesList);
+                }
+            } finally {
+                bf.close();
+            }
+        }
+
+        return map;
+    }
+
+    /**
+     * Points every alternative name of a book, and then the book's own name,
+     * at the book's id. The books are gone through in canon order, so if two
+     * books share a name, the one that comes first in the canon keeps it.
+     */
+    private static Map<String, Integer> buildBookAliases(Canon canon,
+            Map<String, List<String>> alternativeBookNames) {
+        Map<String, Integer> aliases = new HashMap<>();
+
+        for (int bookId = 0; bookId < canon.size(); ++bookId) {
+            List<String> names = alternativeBookNames.get(canon.getBookName(bookId));
+            if (names != null) {
+                for (String value : names) {
+                    addBookAlias(aliases, value, bookId);
+                }
+            }
+        }
+
+        for (int bookId = 0; bookId < canon.size(); ++bookId) {
+            addBookAlias(aliases, canon.getBookName(bookId), bookId);
+        }
+
+        return Collections.unmodifiableMap(aliases);
+    }
+
+    private static void addBookAlias(Map<String, Integer> aliases, String name, int bookId) {
+        String alias = name.toLowerCase();
+        if (!aliases.containsKey(alias)) {
+            aliases.put(alias, bookId);
+        }
+    }
+
+    private static Map<String, List<String>> copy(Map<String, List<String>> map) {
+        Map<String, List<String>> copy = new HashMap<>();
+        for (Map.Entry<String, List<String>> pairs : map.entrySet()) {
+            copy.put(pairs.getKey(), Collections.unmodifiableList(new ArrayList<>(pairs.getValue())));
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Returns the id of the book that goes by the given name, in upper or
+     * lower case.
+     * @param name a name of the book
+     * @return the book's id in the canon or Canon.UNKNOWN_BOOK
+     */
+    public int getBookId(String name) {
+        Integer bookId = bookAliases.get(name.toLowerCase());
+        return bookId == null ? Canon.UNKNOWN_BOOK : bookId;
+    }
+
+    /**
+     * Returns every lower case book name with the id of its book.
+     * @return bookAliases
+     */
+    Map<String, Integer> getBookAliases() {
+        return bookAliases;
+    }
+
+    /**
+     * Returns the canon of books and their chapter counts.
+     * @return canon
+     */
+    public Canon getCanon() {
+        return canon;
+    }
+
+    /**
+     * Returns the topics with their variants. The map can't be changed.
+     * @return topics
+     */
+    public Map<String, List<String>> getTopics() {
+        return topics;
+    }
+
+    /**
+     * Returns each book with the names it goes by. The map can't be changed.
+     * @return alternativeBookNames
+     */
+    public Map<String, List<String>> getAlternativeBookNames() {
+        return alternativeBookNames;
+    }
+
+    /**
+     * Returns the tokenizer that finds scripture references.
+     * @return scriptureTokenizer
+     */
+    public ScriptureTokenizer getScriptureTokenizer() {
+        return scriptureTokenizer;
+    }
+
+    /**
+     * Returns the matcher that finds topics.
+     * @return topicMatcher
+     */
+    public TopicMatcher getTopicMatcher() {
+        return topicMatcher;
+    }
+}
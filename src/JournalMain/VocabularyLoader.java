@@ -0,0 +1,229 @@
+package JournalMain;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads a Vocabulary from its three text files. By default the copies bundled
+ * in /Resources are used, but the properties file can point at other files.
+ * <p>
+ * The compiled vocabulary is cached in a snapshot file along with a hash of
+ * the text it was made from. When the text hasn't changed, the next load
+ * reads the snapshot instead of parsing the files and building the
+ * tokenizer and topic automaton again. How long each load took and where it
+ * came from is logged at FINE and can be asked for afterwards.
+ * @author Grant
+ */
+public class VocabularyLoader {
+    private static final String PROPERTIES_FILE = "/Resources/journal.properties";
+    private static final String BOOKS_TXT = "books";
+    private static final String TERMS_TXT = "terms";
+    private static final String BOOK_NAMES_TXT = "bookNames";
+    private static final String VOCABULARY_CACHE = "vocabularyCache";
+
+    private static final String BUNDLED_BOOKS = "/Resources/booksAndChapters.txt";
+    private static final String BUNDLED_TERMS = "/Resources/terms.txt";
+    private static final String BUNDLED_BOOK_NAMES = "/Resources/bookNames.txt";
+
+    private static final Logger LOGGER = Logger.getLogger(VocabularyLoader.class.getName());
+
+    private final File books;
+    private final File terms;
+    private final File bookNames;
+    private final File cache;
+
+    private long lastLoadMillis;
+    private boolean lastLoadFromSnapshot;
+
+    /**
+     * Constructs a loader. Any file left null is read from the copy bundled
+     * with the program.
+     * @param books the file with each book and its chapter count, or null
+     * @param terms the file with each topic and its variants, or null
+     * @param bookNames the file with each book and its alternative names, or null
+     * @param cache where to keep the compiled snapshot, or null to not keep one
+     */
+    public VocabularyLoader(File books, File terms, File bookNames, File cache) {
+        this.books = books;
+        this.terms = terms;
+        this.bookNames = bookNames;
+        this.cache = cache;
+    }
+
+    /**
+     * Constructs a loader with the files named in the properties file. The
+     * snapshot goes in .spiritualJournal in the user's home unless the
+     * properties file says otherwise.
+     * @return the loader
+     * @throws IOException if the properties file can't be read
+     */
+    public static VocabularyLoader fromProperties() throws IOException {
+        Properties propertyFile = new Properties();
+        InputStream in = VocabularyLoader.class.getResourceAsStream(PROPERTIES_FILE);
+        if (in != null) {
+            try {
+                propertyFile.load(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        File cache = getFile(propertyFile, VOCABULARY_CACHE);
+        if (cache == null) {
+            cache = new File(new File(System.getProperty("user.home"), ".spiritualJournal"),
+                             "vocabulary.bin");
+        }
+
+        return new VocabularyLoader(getFile(propertyFile, BOOKS_TXT),
+                                    getFile(propertyFile, TERMS_TXT),
+                                    getFile(propertyFile, BOOK_NAMES_TXT), cache);
+    }
+
+    private static File getFile(Properties propertyFile, String key) {
+        String path = propertyFile.getProperty(key);
+        return path == null || path.trim().isEmpty() ? null : new File(path.trim());
+    }
+
+    /**
+     * Loads the vocabulary, from the snapshot if it is still up to date or
+     * else from the text files (and then saves a new snapshot).
+     * @return the vocabulary
+     * @throws IOException if the text files can't be read
+     */
+    public synchronized Vocabulary load() throws IOException {
+        long start = System.nanoTime();
+
+        byte[] booksText = readSource(books, BUNDLED_BOOKS);
+        byte[] termsText = readSource(terms, BUNDLED_TERMS);
+        byte[] bookNamesText = readSource(bookNames, BUNDLED_BOOK_NAMES);
+        byte[] sourceHash = hash(booksText, termsText, bookNamesText);
+
+        Vocabulary vocabulary = null;
+        if (cache != null) {
+            try {
+                vocabulary = VocabularySnapshot.read(cache, sourceHash);
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Could not read vocabulary snapshot " + cache, ex);
+            }
+        }
+        lastLoadFromSnapshot = vocabulary != null;
+
+        if (vocabulary == null) {
+            vocabulary = new Vocabulary(Vocabulary.readScripturesFile(toReader(booksText)),
+                                        Vocabulary.readFileToMap(toReader(termsText)),
+                                        Vocabulary.readFileToMap(toReader(bookNamesText)));
+            if (cache != null) {
+                try {
+                    VocabularySnapshot.write(vocabulary, sourceHash, cache);
+                } catch (IOException ex) {
+                    LOGGER.log(Level.WARNING, "Could not save vocabulary snapshot " + cache, ex);
+                }
+            }
+        }
+
+        lastLoadMillis = (System.nanoTime() - start) / 1000000;
+        LOGGER.log(Level.FINE, "Loaded vocabulary from {0} in {1} ms",
+                   new Object[] {lastLoadFromSnapshot ? "snapshot" : "text files", lastLoadMillis});
+        return vocabulary;
+    }
+
+    /**
+     * Reads a whole text file, or the bundled copy if there is no file. A
+     * file that can't be read (or a missing bundled copy) reads as empty.
+     */
+    private static byte[] readSource(File file, String bundled) throws IOException {
+        if (file != null) {
+            return file.canRead() ? Files.readAllBytes(file.toPath()) : new byte[0];
+        }
+
+        InputStream in = VocabularyLoader.class.getResourceAsStream(bundled);
+        if (in == null) {
+            return new byte[0];
+        }
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * The text files are read in the platform's charset, like FileReader does.
+     */
+    private static BufferedReader toReader(byte[] text) {
+        return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(text),
+                                                        Charset.defaultCharset()));
+    }
+
+    /**
+     * Hashes the three text files and the charset they will be read in.
+     */
+    private static byte[] hash(byte[]... texts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(Charset.defaultCharset().name().getBytes(StandardCharsets.UTF_8));
+            for (byte[] text : texts) {
+                digest.update(new byte[] {(byte) (text.length >>> 24), (byte) (text.length >>> 16),
+                                          (byte) (text.length >>> 8), (byte) text.length});
+                digest.update(text);
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException ex) {
+            // Every Java platform has SHA-256.
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Returns the text files this loader reads from disk. Bundled files aren't
+     * in the list.
+     * @return the files
+     */
+    public List<File> getFiles() {
+        List<File> files = new ArrayList<>();
+        for (File file : new File[] {books, terms, bookNames}) {
+            if (file != null) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Returns how long the last load took.
+     * @return milliseconds
+     */
+    public synchronized long getLastLoadMillis() {
+        return lastLoadMillis;
+    }
+
+    /**
+     * Returns true if the last load came from the snapshot.
+     * @return true or false
+     */
+    public synchronized boolean isLastLoadFromSnapshot() {
+        return lastLoadFromSnapshot;
+    }
+}
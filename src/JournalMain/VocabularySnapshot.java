@@ -0,0 +1,232 @@
+package JournalMain;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves a compiled Vocabulary to a binary file and reads it back, so that
+ * later launches don't have to parse the text files or build the tokenizer
+ * and topic automaton again. The file starts with a hash of the text files it
+ * was compiled from; a snapshot whose hash doesn't match is ignored.
+ * <pre>
+ *   int magic, int version, bytes sourceHash,
+ *   canon, topics, alternative book names, book aliases,
+ *   scripture tokenizer, topic matcher
+ * </pre>
+ * Arrays are written as an int length and then the items. Strings are
+ * written as UTF-8 bytes.
+ * @author Grant
+ */
+class VocabularySnapshot {
+    private static final int MAGIC = 0x534A5643;
+    private static final int VERSION = 1;
+
+    /**
+     * Writes the vocabulary to the file. It is written to a temporary file
+     * next to it first and then moved into place, so a reader never sees half
+     * of a snapshot.
+     * @param vocabulary the vocabulary to save
+     * @param sourceHash hash of the text files it was made from
+     * @param file where to save it
+     * @throws IOException writing error
+     */
+    static void write(Vocabulary vocabulary, byte[] sourceHash, File file) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("ERROR: Could not make directory " + directory);
+        }
+
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeBytes(out, sourceHash);
+
+                vocabulary.getCanon().write(out);
+                writeMap(out, vocabulary.getTopics());
+                writeMap(out, vocabulary.getAlternativeBookNames());
+                writeAliases(out, vocabulary.getBookAliases());
+                vocabulary.getScriptureTokenizer().write(out);
+                vocabulary.getTopicMatcher().write(out);
+            } finally {
+                out.close();
+            }
+
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    /**
+     * Reads the file into memory and reads the vocabulary in it. The file
+     * isn't mapped, since write replaces it when the text files change, and
+     * Windows can't replace a file that is still mapped.
+     * @param file the snapshot file
+     * @param sourceHash hash of the text files the vocabulary should come from
+     * @return the vocabulary, or null if there is no snapshot, it was made from
+     *         other files, or it is damaged
+     * @throws IOException reading error
+     */
+    static Vocabulary read(File file, byte[] sourceHash) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        ByteBuffer in;
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            in = ByteBuffer.allocate((int) channel.size());
+            while (in.hasRemaining()) {
+                if (channel.read(in, in.position()) < 0) {
+                    break;
+                }
+            }
+            in.flip();
+        } finally {
+            channel.close();
+        }
+
+        try {
+            if (in.getInt() != MAGIC || in.getInt() != VERSION ||
+                    !Arrays.equals(readBytes(in), sourceHash)) {
+                return null;
+            }
+
+            return new Vocabulary(Canon.read(in), readMap(in), readMap(in), readAliases(in),
+                                  ScriptureTokenizer.read(in), TopicMatcher.read(in));
+        } catch (BufferUnderflowException | IllegalArgumentException |
+                 IndexOutOfBoundsException ex) {
+            return null;
+        }
+    }
+
+    static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    static int[] readInts(ByteBuffer in) {
+        int[] values = new int[readLength(in, 4)];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + values.length * 4);
+        return values;
+    }
+
+    static void writeChars(DataOutputStream out, char[] values) throws IOException {
+        out.writeInt(values.length);
+        for (char value : values) {
+            out.writeChar(value);
+        }
+    }
+
+    static char[] readChars(ByteBuffer in) {
+        char[] values = new char[readLength(in, 2)];
+        in.asCharBuffer().get(values);
+        in.position(in.position() + values.length * 2);
+        return values;
+    }
+
+    static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) {
+            writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    static String[] readStrings(ByteBuffer in) {
+        String[] values = new String[readLength(in, 4)];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = new String(readBytes(in), StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        byte[] bytes = new byte[readLength(in, 1)];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static void writeMap(DataOutputStream out, Map<String, List<String>> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, List<String>> pairs : map.entrySet()) {
+            writeBytes(out, pairs.getKey().getBytes(StandardCharsets.UTF_8));
+            writeStrings(out, pairs.getValue().toArray(new String[pairs.getValue().size()]));
+        }
+    }
+
+    private static Map<String, List<String>> readMap(ByteBuffer in) {
+        int size = readLength(in, 8);
+        Map<String, List<String>> map = new HashMap<>();
+        for (int i = 0; i < size; ++i) {
+            String key = new String(readBytes(in), StandardCharsets.UTF_8);
+            map.put(key, Collections.unmodifiableList(Arrays.asList(readStrings(in))));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static void writeAliases(DataOutputStream out, Map<String, Integer> aliases) throws IOException {
+        out.writeInt(aliases.size());
+        for (Map.Entry<String, Integer> pairs : aliases.entrySet()) {
+            writeBytes(out, pairs.getKey().getBytes(StandardCharsets.UTF_8));
+            out.writeInt(pairs.getValue());
+        }
+    }
+
+    private static Map<String, Integer> readAliases(ByteBuffer in) {
+        int size = readLength(in, 8);
+        Map<String, Integer> aliases = new HashMap<>();
+        for (int i = 0; i < size; ++i) {
+            String alias = new String(readBytes(in), StandardCharsets.UTF_8);
+            aliases.put(alias, in.getInt());
+        }
+        return Collections.unmodifiableMap(aliases);
+    }
+
+    /**
+     * Reads the length of an array and makes sure that many items could fit in
+     * what is left of the snapshot, so a damaged file can't ask for a huge array.
+     */
+    private static int readLength(ByteBuffer in, int itemSize) {
+        int length = in.getInt();
+        if (length < 0 || (long) length * itemSize > in.remaining()) {
+            throw new IllegalArgumentException("Damaged snapshot");
+        }
+        return length;
+    }
+}
@@ -0,0 +1,198 @@
+package JournalMain;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches the vocabulary files on disk and reloads the vocabulary when they
+ * change, without restarting the program. Editors tend to write a file in
+ * several steps, so a reload waits until the files have been quiet for a
+ * moment. The new vocabulary is built on the watcher's own thread and then
+ * put into the Finder, where the next parse picks it up.
+ * <p>
+ * Bundled files can't change, so when the loader only uses those there is
+ * nothing to watch.
+ * @author Grant
+ */
+public class VocabularyWatcher implements Closeable {
+    private static final long DEBOUNCE_MILLIS = 500;
+    private static final Logger LOGGER = Logger.getLogger(VocabularyWatcher.class.getName());
+
+    private final VocabularyLoader loader;
+    private final Finder finder;
+    private final Set<Path> files = new HashSet<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private WatchService watchService;
+    private ScheduledExecutorService reloader;
+    private ScheduledFuture<?> pendingReload;
+
+    /**
+     * Listens for a new vocabulary being put in.
+     */
+    public interface Listener {
+        /**
+         * Called on the watcher's thread after the finder has the new vocabulary.
+         * @param vocabulary the new vocabulary
+         */
+        void vocabularyChanged(Vocabulary vocabulary);
+    }
+
+    /**
+     * Constructs a watcher that reloads with the given loader and puts the
+     * result in the given finder.
+     * @param loader loads the vocabulary files
+     * @param finder gets the new vocabulary
+     */
+    public VocabularyWatcher(VocabularyLoader loader, Finder finder) {
+        this.loader = loader;
+        this.finder = finder;
+        for (File file : loader.getFiles()) {
+            files.add(file.getAbsoluteFile().toPath().normalize());
+        }
+    }
+
+    /**
+     * Adds a listener that is told about every reload.
+     * @param listener the listener
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Starts watching the folders that hold the vocabulary files.
+     * @return true if there is anything to watch
+     * @throws IOException if a folder can't be watched
+     */
+    public synchronized boolean start() throws IOException {
+        if (files.isEmpty() || watchService != null) {
+            return !files.isEmpty();
+        }
+
+        watchService = FileSystems.getDefault().newWatchService();
+        Set<Path> folders = new HashSet<>();
+        for (Path file : files) {
+            if (folders.add(file.getParent())) {
+                file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                          StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+
+        reloader = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Vocabulary reloader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        final WatchService service = watchService;
+        Thread watchThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch(service);
+            }
+        }, "Vocabulary watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        return true;
+    }
+
+    /**
+     * Waits for changes in the watched folders until the watch service is closed.
+     */
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Path folder = (Path) key.watchable();
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW ||
+                            files.contains(folder.resolve((Path) event.context()).normalize())) {
+                        scheduleReload();
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            // Closed, so stop watching.
+        }
+    }
+
+    /**
+     * Reloads once the files have been quiet for DEBOUNCE_MILLIS. Each change
+     * pushes the reload back.
+     */
+    private synchronized void scheduleReload() {
+        if (reloader == null) {
+            return;
+        }
+        if (pendingReload != null) {
+            pendingReload.cancel(false);
+        }
+
+        pendingReload = reloader.schedule(new Runnable() {
+            @Override
+            public void run() {
+                reload();
+            }
+        }, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Loads the vocabulary again, puts it in the finder and tells the
+     * listeners. A vocabulary that can't be read leaves the old one in use.
+     */
+    private void reload() {
+        Vocabulary vocabulary;
+        try {
+            vocabulary = loader.load();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Could not reload the vocabulary", ex);
+            return;
+        }
+
+        finder.setVocabulary(vocabulary);
+        for (Listener listener : listeners) {
+            listener.vocabularyChanged(vocabulary);
+        }
+    }
+
+    /**
+     * Stops watching. A reload that is already going on still finishes.
+     * @throws IOException if the watch service doesn't close
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (reloader != null) {
+            reloader.shutdown();
+            reloader = null;
+        }
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+    }
+}
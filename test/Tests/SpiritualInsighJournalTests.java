@@ -1,173 +1,882 @@
-/*
- * To change this license header, choose License Headers in Project Properties.
- * To change this template file, choose Tools | Templates
- * and open the template in the editor.
- */
-package Tests;
-
-import Document.Entry;
-import Document.Scripture;
-import Document.XML;
-import JournalMain.Finder;
-import JournalMain.Journal;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerException;
-import org.testng.Assert;
-import static org.testng.Assert.*;
-import org.testng.annotations.AfterClass;
-import org.testng.annotations.AfterMethod;
-import org.testng.annotations.BeforeClass;
-import org.testng.annotations.BeforeMethod;
-import org.testng.annotations.Test;
-import org.xml.sax.SAXException;
-
-/**
- *
- * @author Grant
- */
-public class SpiritualInsighJournalTests {
-    
-    public SpiritualInsighJournalTests() {
-    }
-
-    // TODO add test methods here.
-    // The methods must be annotated with annotation @Test. For example:
-    //
-    // @Test
-    // public void hello() {}
-
-    @Test
-    public void testFinderScriptureValidity() {
-        try {
-            Finder finder = new Finder();
-            Scripture scripture = new Scripture("Genesis", "50");
-            
-            Assert.assertTrue(finder.isValidScrip(scripture));
-            
-            scripture = new Scripture("Enos", "2");
-            
-            Assert.assertFalse(finder.isValidScrip(scripture));
-            
-            scripture = new Scripture("Jacob", "20");
-            
-            Assert.assertFalse(finder.isValidScrip(scripture));
-        } catch (IOException ex) {
-            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
-        }
-    }
-    
-    @Test
-    public void testFinderTopicValidity() {
-        try {
-            Finder finder = new Finder();
-            
-            String topic = "Faith";
-            
-            Assert.assertTrue(finder.isValidTopic(topic));
-            
-            topic = "Repentance";
-            
-            Assert.assertTrue(finder.isValidTopic(topic));
-            
-            topic = "love";
-            
-            Assert.assertFalse(finder.isValidTopic(topic));
-        } catch (IOException ex) {
-            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
-        }
-    }
-    
-    @Test
-    public void testFinderParseScrips() {
-        try {
-            Finder finder = new Finder();
-            Entry entry = new Entry();
-            
-            entry.setText("Hi my name is Grant Merrill");
-            finder.parseForScriptures(entry);
-            Assert.assertEquals(entry.getScriptureList().isEmpty(), true);
-            
-            entry.removeAllScriptures();
-            entry.setText("hi 2 Nephi 22:3 and Enos 9 and gen 50");
-            finder.parseForScriptures(entry);
-            Assert.assertEquals(entry.getScriptureList().size(), 2);
-        } catch (IOException ex) {
-            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
-        }
-    }
-    
-    @Test
-    public void testFinderParseTopics() {
-        try {
-            Finder finder = new Finder();
-            Entry entry = new Entry();
-            
-            entry.setText("stiffnecked and now humility and if you humble");
-            finder.parseForTopics(entry);
-            Assert.assertEquals(entry.getTopicsList().size(), 2);
-            
-            entry.removeAllTopics();
-            entry.setText("holy ghost, covenant, Jesus, hope");
-            finder.parseForTopics(entry);
-            Assert.assertEquals(entry.getTopicsList().size(), 4);
-            
-            entry.removeAllTopics();
-            entry.setText("");
-            finder.parseForTopics(entry);
-            Assert.assertEquals(entry.getTopicsList().size(), 0);
-        } catch (IOException ex) {
-            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
-        }
-    }
-    
-    @Test
-    public void testXMLSavingAndReading() {
-        try {
-            Journal journal = new Journal();
-            XML file = new XML(new File("C:\\Users\\Public\\test.xml"));
-            
-            journal.setXmlFile(file);
-            List<Entry> entries = new ArrayList<>();
-            
-            for (int i = 0; i < 10; ++i) {
-                Entry entry = new Entry();
-                entry.addScripture(new Scripture("Genesis", "50"));
-                entry.addTopic("Faith");
-                entry.setDate("2014-10-30");
-                entries.add(entry);
-            }
-            
-            journal.setEntries(entries);
-            journal.saveXML();
-            journal.readXML();
-            Assert.assertEquals(journal.getXmlFile().getDocument().getFirstChild().getNodeName(),"journal");
-            Assert.assertEquals(journal.getXmlFile().getDocument().getFirstChild().getChildNodes().
-                    item(0).getChildNodes().item(0).getAttributes().getNamedItem("book").getNodeValue(), "Genesis");
-        } catch (IOException | TransformerException | ParserConfigurationException | SAXException ex) {
-            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
-        }
-    }
-    
-    @BeforeClass
-    public static void setUpClass() throws Exception {
-    }
-
-    @AfterClass
-    public static void tearDownClass() throws Exception {
-    }
-
-    @BeforeMethod
-    public void setUpMethod() throws Exception {
-    }
-
-    @AfterMethod
-    public void tearDownMethod() throws Exception {
-    }
-}
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package Tests;
+
+import Document.AtomicFileWriter;
+import Document.BinaryJournal;
+import Document.Entry;
+import Document.JournalLog;
+import Document.LazyEntry;
+import Document.Scripture;
+import Document.TextFile;
+import Document.XML;
+import JournalMain.AutosaveService;
+import JournalMain.DateIndex;
+import JournalMain.EntryChange;
+import JournalMain.Finder;
+import JournalMain.Journal;
+import JournalMain.Postings;
+import JournalMain.ReferenceIndex;
+import JournalMain.SearchIndex;
+import JournalMain.VocabularyLoader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import org.testng.Assert;
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author Grant
+ */
+public class SpiritualInsighJournalTests {
+    
+    public SpiritualInsighJournalTests() {
+    }
+
+    // TODO add test methods here.
+    // The methods must be annotated with annotation @Test. For example:
+    //
+    // @Test
+    // public void hello() {}
+
+    @Test
+    public void testFinderScriptureValidity() {
+        try {
+            Finder finder = new Finder();
+            Scripture scripture = new Scripture("Genesis", "50");
+            
+            Assert.assertTrue(finder.isValidScrip(scripture));
+            
+            scripture = new Scripture("Enos", "2");
+            
+            Assert.assertFalse(finder.isValidScrip(scripture));
+            
+            scripture = new Scripture("Jacob", "20");
+            
+            Assert.assertFalse(finder.isValidScrip(scripture));
+            
+            scripture = new Scripture("Genesis", "0");
+            
+            Assert.assertFalse(finder.isValidScrip(scripture));
+            
+            scripture = new Scripture("Genesis", "five");
+            
+            Assert.assertFalse(finder.isValidScrip(scripture));
+        } catch (IOException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testFinderBookAliases() {
+        try {
+            Finder finder = new Finder();
+            
+            Assert.assertEquals(finder.getTrueBookName("gen."), "Genesis");
+            Assert.assertEquals(finder.getTrueBookName("D&C"), "Doctrine and Covenants");
+            Assert.assertEquals(finder.getTrueBookName("1 Nephi"), "1 Nephi");
+            Assert.assertEquals(finder.getTrueBookName("genes"), null);
+        } catch (IOException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testFinderTopicValidity() {
+        try {
+            Finder finder = new Finder();
+            
+            String topic = "Faith";
+            
+            Assert.assertTrue(finder.isValidTopic(topic));
+            
+            topic = "Repentance";
+            
+            Assert.assertTrue(finder.isValidTopic(topic));
+            
+            topic = "love";
+            
+            Assert.assertFalse(finder.isValidTopic(topic));
+        } catch (IOException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testFinderParseScrips() {
+        try {
+            Finder finder = new Finder();
+            Entry entry = new Entry();
+            
+            entry.setText("Hi my name is Grant Merrill");
+            finder.parseForScriptures(entry);
+            Assert.assertEquals(entry.getScriptureList().isEmpty(), true);
+            
+            entry.removeAllScriptures();
+            entry.setText("hi 2 Nephi 22:3 and Enos 9 and gen 50");
+            finder.parseForScriptures(entry);
+            Assert.assertEquals(entry.getScriptureList().size(), 2);
+            
+            entry.setText("gen 50 and Genesis 50 and then gen 50 again");
+            finder.parseForScriptures(entry);
+            Assert.assertEquals(entry.getScriptureList().size(), 1);
+            Assert.assertTrue(finder.hasScripture(entry, entry.getScriptureAt(0)));
+            Assert.assertFalse(entry.addScripture(new Scripture("Genesis", "50", "", "")));
+            
+            // Removing goes by the title the scripture was added with.
+            entry.addScripture(new Scripture("Alma", "32"));
+            entry.getScriptureAt(1).setFullTitle("Alma 33");
+            entry.removeScripture(1);
+            Assert.assertTrue(entry.addScripture(new Scripture("Alma", "32")));
+        } catch (IOException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testFinderParseVerseRanges() {
+        try {
+            Finder finder = new Finder();
+            Entry entry = new Entry();
+            
+            entry.setText("Read Alma chapter 32:21-23 and then v. 27");
+            finder.parseForScriptures(entry);
+            Assert.assertEquals(entry.getScriptureList().size(), 2);
+            Assert.assertEquals(entry.getScriptureAt(0).getFullTitle(), "Alma 32 21 - 23");
+            Assert.assertEquals(entry.getScriptureAt(1).getFullTitle(), "Alma 32 27");
+            
+            entry.setText("regen 5");
+            finder.parseForScriptures(entry);
+            Assert.assertEquals(entry.getScriptureList().isEmpty(), true);
+        } catch (IOException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testFinderParseTopics() {
+        try {
+            Finder finder = new Finder();
+            Entry entry = new Entry();
+            
+            entry.setText("stiffnecked and now humility and if you humble");
+            finder.parseForTopics(entry);
+            Assert.assertEquals(entry.getTopicsList().size(), 2);
+            
+            entry.removeAllTopics();
+            entry.setText("holy ghost, covenant, Jesus, hope");
+            finder.parseForTopics(entry);
+            Assert.assertEquals(entry.getTopicsList().size(), 4);
+            
+            entry.removeAllTopics();
+            entry.setText("");
+            finder.parseForTopics(entry);
+            Assert.assertEquals(entry.getTopicsList().size(), 0);
+        } catch (IOException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testFinderTopicWordBoundaries() {
+        try {
+            Finder finder = new Finder();
+            Entry entry = new Entry();
+            
+            entry.setText("priestly hopeful lawyers");
+            finder.parseForTopics(entry);
+            Assert.assertEquals(entry.getTopicsList().size(), 0);
+            
+            entry.setText("faithfulness, hope. law");
+            finder.parseForTopics(entry);
+            Assert.assertEquals(entry.getTopicsList().size(), 3);
+            Assert.assertEquals(entry.getTopicAt(0), "Faith");
+        } catch (IOException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testFinderAnalyzeAll() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Finder finder = new Finder();
+            String[] texts = {"I have faith in 1 ne 3:7", "hope and charity in Alma 32:21",
+                              "repent, Moroni 10:4-5 and D&C 4", "nothing at all"};
+            List<Entry> batch = new ArrayList<>();
+            List<Entry> single = new ArrayList<>();
+            
+            // More entries than one task takes, so the work is split.
+            for (int i = 0; i < 300; ++i) {
+                for (List<Entry> list : Arrays.asList(batch, single)) {
+                    Entry entry = new Entry();
+                    entry.setText(texts[i % texts.length] + " " + i);
+                    list.add(entry);
+                }
+                finder.analyze(single.get(i));
+            }
+            finder.analyzeAll(batch, pool);
+            
+            for (int i = 0; i < batch.size(); ++i) {
+                Assert.assertEquals(batch.get(i).getTopicsList(), single.get(i).getTopicsList());
+                Assert.assertEquals(batch.get(i).getScriptureList().size(), single.get(i).getScriptureList().size());
+                for (int j = 0; j < batch.get(i).getScriptureList().size(); ++j) {
+                    Assert.assertEquals(batch.get(i).getScriptureAt(j).getFullTitle(),
+                                        single.get(i).getScriptureAt(j).getFullTitle());
+                }
+            }
+            Assert.assertFalse(batch.get(0).getTopicsList().isEmpty());
+            Assert.assertFalse(batch.get(0).getScriptureList().isEmpty());
+        } catch (IOException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    @Test
+    public void testVocabularySnapshot() {
+        try {
+            File cache = File.createTempFile("vocabulary", ".bin");
+            cache.delete();
+            VocabularyLoader loader = new VocabularyLoader(null, null, null, cache);
+            
+            Finder cold = new Finder(loader.load());
+            Assert.assertFalse(loader.isLastLoadFromSnapshot());
+            Finder warm = new Finder(loader.load());
+            Assert.assertTrue(loader.isLastLoadFromSnapshot());
+            
+            Entry entry = new Entry();
+            entry.setText("I have faith in 1 ne 3:7 and moro. 10:4-5");
+            cold.analyze(entry);
+            String scriptures = entry.getScriptureAt(1).getFullTitle();
+            int topics = entry.getTopicsList().size();
+            
+            warm.analyze(entry);
+            Assert.assertEquals(entry.getScriptureAt(1).getFullTitle(), scriptures);
+            Assert.assertEquals(entry.getTopicsList().size(), topics);
+            Assert.assertEquals(warm.getScriptures().size(), cold.getScriptures().size());
+            cache.delete();
+        } catch (IOException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testXMLSavingAndReading() {
+        try {
+            Journal journal = new Journal();
+            File xml = File.createTempFile("journal", ".xml");
+            XML file = new XML(xml);
+            
+            journal.setXmlFile(file);
+            List<Entry> entries = new ArrayList<>();
+            String text = "";
+            for (int i = 0; i < 50; ++i) {
+                text += "I have faith ";
+            }
+            // Whitespace at either end, like the newline on imported entries, is kept.
+            text += "\n";
+            
+            for (int i = 0; i < 10; ++i) {
+                Entry entry = new Entry();
+                entry.setText(text);
+                entry.addScripture(new Scripture("Genesis", "50"));
+                entry.addTopic("Faith");
+                entry.setDate("2014-10-30");
+                entries.add(entry);
+            }
+            
+            journal.setEntries(entries);
+            journal.saveXML();
+            journal.readXML();
+            Assert.assertEquals(journal.getEntries().size(), 10);
+            Assert.assertEquals(journal.getEntries().get(9).getScriptureAt(0).getBookName(), "Genesis");
+            Assert.assertEquals(journal.getEntries().get(9).getTopicAt(0), "Faith");
+            Assert.assertEquals(journal.getEntries().get(9).getText(), text);
+            
+            // The streamed file has the same layout as a saved Document.
+            journal.getXmlFile().readFile();
+            Assert.assertEquals(journal.getXmlFile().getDocument().getFirstChild().getNodeName(),"journal");
+            Assert.assertEquals(journal.getXmlFile().getDocument().getFirstChild().getChildNodes().
+                    item(0).getChildNodes().item(0).getAttributes().getNamedItem("book").getNodeValue(), "Genesis");
+            xml.delete();
+        } catch (IOException | ParserConfigurationException | SAXException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testTextFileImport() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            File txt = File.createTempFile("journal", ".txt");
+            PrintWriter writer = new PrintWriter(txt);
+            writer.print("notes before any entry\n-----\n2014-10-30\nI read gen 50\n\nand had faith\n" +
+                         "-----\n2014-10-31\n-----\n2014-11-01\nhope\n");
+            writer.close();
+            
+            Journal journal = new Journal();
+            journal.setTextDoc(new TextFile(txt));
+            journal.importTxt();
+            
+            List<Entry> entries = journal.getEntries();
+            Assert.assertEquals(entries.size(), 3);
+            Assert.assertEquals(entries.get(0).getDate(), "2014-10-30");
+            Assert.assertEquals(entries.get(0).getText(), "I read gen 50\n\nand had faith\n");
+            Assert.assertEquals(entries.get(0).getScriptureList().size(), 1);
+            Assert.assertEquals(entries.get(1).getText(), "");
+            Assert.assertEquals(entries.get(2).getTopicAt(0), "Hope");
+            
+            journal.importTxtInParallel();
+            Assert.assertEquals(journal.getEntries().size(), 3);
+            Assert.assertEquals(journal.getEntries().get(0).getText(), entries.get(0).getText());
+            Assert.assertEquals(journal.getEntries().get(2).getTopicAt(0), "Hope");
+            
+            List<Entry> mapped = new TextFile(txt).readEntries(pool, null);
+            Assert.assertEquals(mapped.size(), 3);
+            Assert.assertEquals(mapped.get(1).getDate(), "2014-10-31");
+            Assert.assertEquals(mapped.get(2).getText(), "hope\n");
+            txt.delete();
+        } catch (IOException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    @Test
+    public void testTextFileExport() {
+        try {
+            File txt = File.createTempFile("journal", ".txt");
+            List<Entry> entries = new ArrayList<>();
+            for (int i = 0; i < 3; ++i) {
+                Entry entry = new Entry();
+                entry.setDate("2014-10-3" + i);
+                entry.setText("Caf\u00e9 \u00e9t\u00e9 \u2014 \ud83d\ude00 " + i);
+                entries.add(entry);
+            }
+            
+            TextFile file = new TextFile(txt);
+            file.setEntries(entries);
+            file.save();
+            
+            List<Entry> read = new TextFile(txt).readEntries();
+            Assert.assertEquals(read.size(), 3);
+            Assert.assertEquals(read.get(2).getDate(), "2014-10-32");
+            Assert.assertEquals(read.get(2).getText(), entries.get(2).getText() + "\n");
+            
+            // A file exported before, in the platform's charset, is still read in it.
+            byte[] old = "-----\n2014-10-30\nCaf\u00e9\n".getBytes(StandardCharsets.ISO_8859_1);
+            FileOutputStream out = new FileOutputStream(txt);
+            out.write(old);
+            out.close();
+            String expected = new String(old, Charset.defaultCharset()).substring(17);
+            Assert.assertEquals(new TextFile(txt).readEntries().get(0).getText(), expected);
+            txt.delete();
+        } catch (IOException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testJournalLog() {
+        try {
+            File sjl = File.createTempFile("journal", ".sjl");
+            Journal journal = new Journal();
+            List<Entry> entries = new ArrayList<>();
+            for (int i = 0; i < 3; ++i) {
+                Entry entry = new Entry();
+                entry.setDate("2014-10-3" + i);
+                entry.setText("faith " + i);
+                entry.addTopic("Faith");
+                entries.add(entry);
+            }
+            journal.setEntries(entries);
+            journal.setJournalLog(new JournalLog(sjl));
+            journal.saveLog();
+            Assert.assertEquals(sjl.length(), 8);
+            
+            // Saving an entry only adds that entry to the log.
+            entries.get(1).setText("hope");
+            journal.saveEntry(entries.get(1));
+            journal.getJournalLog().delete(entries.get(0));
+            long length = sjl.length();
+            
+            // A record cut off part way through is dropped.
+            FileOutputStream out = new FileOutputStream(sjl, true);
+            out.write(new byte[] {0, 0, 0, 40, 1, 2});
+            out.close();
+            
+            journal.setJournalLog(new JournalLog(sjl));
+            journal.readLog();
+            Assert.assertEquals(sjl.length(), length);
+            Assert.assertEquals(journal.getEntries().size(), 2);
+            Assert.assertEquals(journal.getEntries().get(0).getText(), "hope");
+            Assert.assertEquals(journal.getEntries().get(1).getTopicAt(0), "Faith");
+            
+            journal.getJournalLog().compact(journal.getEntries());
+            Assert.assertEquals(sjl.length(), 8);
+            journal.readLog();
+            Assert.assertEquals(journal.getEntries().size(), 2);
+            
+            // Entries with the same date are kept apart.
+            Entry sameDay = new Entry();
+            sameDay.setDate("2014-10-31");
+            sameDay.setText("charity");
+            journal.getEntries().add(sameDay);
+            journal.saveEntry(sameDay);
+            journal.readLog();
+            Assert.assertEquals(journal.getEntries().size(), 3);
+            Assert.assertEquals(journal.getEntries().get(1).getText(), "faith 2");
+            Assert.assertEquals(journal.getEntries().get(2).getText(), "charity");
+            journal.removeEntry(journal.getEntries().get(2));
+            journal.readLog();
+            Assert.assertEquals(journal.getEntries().size(), 2);
+            Assert.assertEquals(journal.getEntries().get(1).getText(), "faith 2");
+            
+            journal.setJournalLog(null);
+            sjl.delete();
+            new File(sjl.getPath() + ".snapshot").delete();
+        } catch (IOException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testBinaryJournal() {
+        try {
+            File sjb = File.createTempFile("journal", ".sjb");
+            Journal journal = new Journal();
+            List<Entry> entries = new ArrayList<>();
+            for (int i = 0; i < 3; ++i) {
+                Entry entry = new Entry();
+                entry.setDate("2014-10-3" + i);
+                entry.setText("faith \u00e9 " + i);
+                entry.addTopic("Faith");
+                entries.add(entry);
+            }
+            entries.get(1).addScripture(new Scripture("Genesis", "50", "1", "3"));
+            entries.get(2).setDate("October 2014");
+            journal.setEntries(entries);
+            journal.setBinaryFile(new BinaryJournal(sjb));
+            journal.saveBinary();
+            
+            journal.readBinary();
+            Assert.assertEquals(journal.getEntries().size(), 3);
+            Entry entry = journal.getEntries().get(1);
+            Assert.assertFalse(((LazyEntry) entry).isTextLoaded());
+            Assert.assertEquals(entry.getDate(), "2014-10-31");
+            Assert.assertEquals(entry.getTopicAt(0), "Faith");
+            Assert.assertEquals(entry.getScriptureAt(0).getFullTitle(),
+                                entries.get(1).getScriptureAt(0).getFullTitle());
+            Assert.assertEquals(entry.getText(), "faith \u00e9 1");
+            Assert.assertTrue(((LazyEntry) entry).isTextLoaded());
+            Assert.assertEquals(journal.getEntries().get(2).getDate(), "October 2014");
+            Assert.assertEquals(journal.getEntries().get(2).getText(), "faith \u00e9 2");
+            
+            // The file can be saved over while the text of its entries isn't read yet.
+            journal.readBinary();
+            Entry unread = journal.getEntries().get(0);
+            Entry changed = journal.getEntries().get(1).copy();
+            changed.setText("hope");
+            journal.getBinaryFile().save(Arrays.asList(unread.copy(), changed));
+            Assert.assertFalse(((LazyEntry) unread).isTextLoaded());
+            Assert.assertEquals(unread.getText(), "faith \u00e9 0");
+            journal.readBinary();
+            Assert.assertEquals(journal.getEntries().get(1).getText(), "hope");
+            
+            sjb.delete();
+        } catch (IOException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testAtomicFileWriter() {
+        try {
+            File xml = File.createTempFile("journal", ".xml");
+            List<Entry> entries = new ArrayList<>();
+            Entry entry = new Entry();
+            entry.setDate("2014-10-30");
+            entry.setText("faith");
+            entries.add(entry);
+            
+            XML file = new XML(xml);
+            file.setBackups(2);
+            file.save(entries);
+            entry.setText("hope");
+            file.save(entries);
+            Assert.assertEquals(new XML(xml).readEntries().get(0).getText(), "hope");
+            Assert.assertTrue(AtomicFileWriter.getBackup(xml, 1).length() > 0);
+            Assert.assertEquals(AtomicFileWriter.getBackup(xml, 2).length(), 0);
+            
+            // A write that isn't committed leaves the file alone.
+            long length = xml.length();
+            AtomicFileWriter writer = new AtomicFileWriter(xml);
+            writer.getOutputStream().write(new byte[] {1, 2, 3});
+            writer.close();
+            Assert.assertEquals(xml.length(), length);
+            for (String name : xml.getAbsoluteFile().getParentFile().list()) {
+                Assert.assertFalse(name.startsWith("." + xml.getName()));
+            }
+            Assert.assertEquals(new XML(xml).readEntries().get(0).getText(), "hope");
+            
+            xml.delete();
+            AtomicFileWriter.getBackup(xml, 1).delete();
+            AtomicFileWriter.getBackup(xml, 2).delete();
+        } catch (IOException | XMLStreamException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testAutosave() {
+        try {
+            File xml = File.createTempFile("journal", ".xml");
+            Journal journal = new Journal();
+            List<Entry> entries = new ArrayList<>();
+            Entry entry = new Entry();
+            entry.setDate("2014-10-30");
+            entry.setText("faith");
+            entries.add(entry);
+            journal.setEntries(entries);
+            
+            final CountDownLatch saved = new CountDownLatch(1);
+            AutosaveService autosave = new AutosaveService(journal, new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            }, 200);
+            autosave.addListener(new AutosaveService.Listener() {
+                @Override
+                public void saved(boolean dirty) {
+                    saved.countDown();
+                }
+                
+                @Override
+                public void saveFailed(IOException ex) {
+                }
+            });
+            autosave.setTarget(AutosaveService.xmlTarget(new XML(xml)));
+            
+            // A burst of changes is one save of the last one.
+            for (int i = 0; i < 5; ++i) {
+                entry.setText("faith " + i);
+                autosave.markDirty();
+            }
+            Assert.assertTrue(autosave.isDirty());
+            Assert.assertTrue(saved.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(new XML(xml).readEntries().get(0).getText(), "faith 4");
+            
+            // Closing saves what is left.
+            entry.setText("hope");
+            autosave.markDirty();
+            autosave.close();
+            Assert.assertFalse(autosave.isDirty());
+            Assert.assertEquals(new XML(xml).readEntries().get(0).getText(), "hope");
+            
+            // Only the entries changed since the last save are copied again.
+            Entry other = new Entry();
+            other.setDate("2014-10-31");
+            other.setText("hope");
+            entries.add(other);
+            final List<List<Entry>> copies = new ArrayList<>();
+            final CountDownLatch copied = new CountDownLatch(1);
+            autosave = new AutosaveService(journal, new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            }, 200);
+            autosave.setTarget(new AutosaveService.Target() {
+                @Override
+                public void save(List<Entry> entries) {
+                    copies.add(entries);
+                    copied.countDown();
+                }
+            });
+            autosave.saveNow();
+            Assert.assertTrue(copied.await(5, TimeUnit.SECONDS));
+            entry.setText("charity");
+            autosave.markDirty();
+            autosave.close();
+            Assert.assertEquals(copies.size(), 2);
+            Assert.assertNotSame(copies.get(1).get(0), copies.get(0).get(0));
+            Assert.assertEquals(copies.get(1).get(0).getText(), "charity");
+            Assert.assertSame(copies.get(1).get(1), copies.get(0).get(1));
+            
+            xml.delete();
+        } catch (IOException | XMLStreamException | InterruptedException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testReferenceIndex() {
+        try {
+            Journal journal = new Journal();
+            List<Entry> entries = new ArrayList<>();
+            for (int i = 0; i < 3; ++i) {
+                Entry entry = new Entry();
+                entry.setDate("2014-10-3" + i);
+                entry.addScripture(new Scripture("Alma", String.valueOf(32 + i % 2), "21", ""));
+                entry.addTopic(i == 1 ? "Hope" : "Faith");
+                entries.add(entry);
+            }
+            entries.get(2).addScripture(new Scripture("Alma", "32", "27", ""));
+            journal.setEntries(entries);
+            
+            ReferenceIndex index = journal.getReferenceIndex();
+            Postings alma = index.getBook("Alma");
+            Assert.assertEquals(alma.toArray(), new int[] {0, 1, 2});
+            Assert.assertEquals(index.getChapter("Alma 32").toArray(), new int[] {0, 2});
+            Assert.assertEquals(index.getReference(entries.get(1).getScriptureAt(0).getFullTitle()).toArray(),
+                                new int[] {1});
+            Assert.assertEquals(index.getTopic("Faith").toArray(), new int[] {0, 2});
+            Assert.assertTrue(index.getBook("Ether").isEmpty());
+            Assert.assertSame(journal.getEntryIds().getEntry(alma.get(2)), entries.get(2));
+            
+            // Reading the journal again doesn't add to what was there.
+            journal.validateXML();
+            journal.validateXML();
+            Assert.assertEquals(index.getBook("Alma").size(), 3);
+            Assert.assertEquals(journal.getEntryIds().size(), 3);
+        } catch (IOException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testUpsertEntry() {
+        try {
+            Journal journal = new Journal();
+            final List<EntryChange> changes = new ArrayList<>();
+            journal.addListener(new Journal.Listener() {
+                @Override
+                public void entryChanged(EntryChange change) {
+                    changes.add(change);
+                }
+            });
+            
+            Entry entry = journal.upsertEntry("2014-10-30", "Genesis 50 and hope");
+            Assert.assertTrue(changes.get(0).isAdded());
+            Assert.assertEquals(journal.getEntries().size(), 1);
+            Assert.assertEquals(journal.getReferenceIndex().getBook("Genesis").size(), 1);
+            Assert.assertEquals(journal.getReferenceIndex().getTopic("Hope").size(), 1);
+            
+            // Editing the entry parses it again and only moves what changed.
+            Assert.assertSame(journal.upsertEntry("2014-10-30", "Enos 1 and hope"), entry);
+            EntryChange change = changes.get(1);
+            Assert.assertEquals(change.getRemovedScriptures().get(0).getBookName(), "Genesis");
+            Assert.assertEquals(change.getAddedScriptures().get(0).getBookName(), "Enos");
+            Assert.assertTrue(change.getAddedTopics().isEmpty());
+            Assert.assertTrue(change.getRemovedTopics().isEmpty());
+            Assert.assertTrue(journal.getReferenceIndex().getBook("Genesis").isEmpty());
+            Assert.assertEquals(journal.getReferenceIndex().getBook("Enos").size(), 1);
+            Assert.assertEquals(journal.getEntries().size(), 1);
+            
+            Assert.assertTrue(journal.removeEntry(entry));
+            Assert.assertTrue(changes.get(2).isRemoved());
+            Assert.assertTrue(journal.getReferenceIndex().getBook("Enos").isEmpty());
+            Assert.assertTrue(journal.getReferenceIndex().getTopic("Hope").isEmpty());
+            Assert.assertNull(journal.getEntry("2014-10-30"));
+            
+            // A file that fails to read leaves the journal and its index as they were.
+            journal.upsertEntry("2014-10-30", "Genesis 50 and hope");
+            Entry good = new Entry();
+            good.setDate("2014-01-01");
+            Entry bad = new Entry();
+            bad.setDate("2014-01-02");
+            bad.addScripture(new Scripture("Enos", "9"));
+            File xml = File.createTempFile("journal", ".xml");
+            new XML(xml).save(Arrays.asList(good, bad));
+            journal.setXmlFile(new XML(xml));
+            try {
+                journal.readXML();
+                Assert.fail("The invalid scripture wasn't caught");
+            } catch (IOException expected) {
+                // Enos only has one chapter.
+            }
+            xml.delete();
+            Assert.assertNull(journal.getEntry("2014-01-01"));
+            Assert.assertSame(journal.getEntry("2014-10-30"), journal.getEntries().get(0));
+            Assert.assertEquals(journal.getReferenceIndex().getBook("Genesis").size(), 1);
+            
+            // Tags found on copies are given back, unless the entry changed meanwhile.
+            Entry later = journal.upsertEntry("2014-10-31", "Enos 1");
+            List<Entry> before = new ArrayList<>(journal.getEntries());
+            List<Entry> copies = Journal.copyForAnalysis(before);
+            journal.getFinder().analyzeAll(copies);
+            journal.upsertEntry("2014-10-31", "Mosiah 4 and faith");
+            copies.get(0).addTopic("Faith");
+            List<Entry> retagged = journal.retagEntries(before, copies);
+            Assert.assertEquals(retagged.size(), 1);
+            Assert.assertSame(retagged.get(0), journal.getEntries().get(0));
+            Assert.assertEquals(journal.getEntries().get(0).getScriptureAt(0).getBookName(), "Genesis");
+            Assert.assertEquals(journal.getEntries().get(0).getTopicAt(0), "Hope");
+            Assert.assertEquals(journal.getEntries().get(0).getTopicAt(1), "Faith");
+            Assert.assertEquals(journal.getReferenceIndex().getTopic("Faith").size(), 2);
+            Assert.assertSame(journal.search("genesis").get(0), journal.getEntries().get(0));
+            Assert.assertEquals(later.getScriptureAt(0).getBookName(), "Mosiah");
+            Assert.assertEquals(journal.getReferenceIndex().getBook("Genesis").size(), 1);
+            Assert.assertTrue(journal.getReferenceIndex().getBook("Enos").isEmpty());
+            
+            // A second entry of a day is saved as itself, not over the first one.
+            Entry second = journal.upsertEntry(null, "2014-10-31", "Enos 1");
+            Assert.assertNotSame(second, later);
+            Assert.assertSame(journal.upsertEntry(second, "2014-10-31", "Alma 32"), second);
+            Assert.assertEquals(later.getText(), "Mosiah 4 and faith");
+            Assert.assertEquals(journal.getDateIndex().get("2014-10-31").size(), 2);
+            Assert.assertEquals(journal.getReferenceIndex().getBook("Alma").size(), 1);
+            journal.removeEntry(second);
+            Assert.assertNotSame(journal.upsertEntry(second, "2014-10-31", "Alma 32"), second);
+        } catch (IOException | XMLStreamException | SAXException | ParserConfigurationException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testSearchIndex() {
+        try {
+            Journal journal = new Journal();
+            Entry first = journal.upsertEntry("2014-10-30", "Faith in Christ brings hope.");
+            Entry second = journal.upsertEntry("2014-10-31", "Hope and faith; repentance in Christ.");
+            journal.upsertEntry("2014-11-01", "We repented and were baptized.");
+            
+            Assert.assertEquals(journal.search("HOPE").size(), 2);
+            Assert.assertEquals(journal.search("faith repentance"), Arrays.asList(second));
+            Assert.assertEquals(journal.search("faith & hope - repentance"), Arrays.asList(second));
+            Assert.assertTrue(journal.search("&").isEmpty());
+            Assert.assertEquals(journal.search("\"faith in christ\""), Arrays.asList(first));
+            Assert.assertEquals(journal.search("repent*").size(), 2);
+            Assert.assertTrue(journal.search("charity").isEmpty());
+            journal.indexEntries();
+            Assert.assertEquals(journal.search("\"faith in christ\" hope"), Arrays.asList(first));
+            
+            // Changing or removing an entry only updates its own words.
+            journal.upsertEntry("2014-10-30", "Charity never faileth.");
+            Assert.assertEquals(journal.search("charity"), Arrays.asList(first));
+            Assert.assertTrue(journal.search("\"faith in christ\"").isEmpty());
+            Assert.assertEquals(journal.search("hope"), Arrays.asList(second));
+            journal.removeEntry(second);
+            Assert.assertTrue(journal.search("hope").isEmpty());
+            Assert.assertEquals(journal.search("repent*").size(), 1);
+        } catch (IOException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testSearchRanked() {
+        try {
+            Journal journal = new Journal();
+            Entry trials = journal.upsertEntry("2014-10-30", "Faith in trials. Trials test our faith.");
+            Entry work = journal.upsertEntry("2014-10-31",
+                    "A long day at work with many meetings, and faith came up once among the rest.");
+            Entry trust = journal.upsertEntry("2014-11-01", "I believe and trust the Lord.");
+            journal.upsertEntry("2014-11-02", "Nothing much today.");
+            
+            // Any of the words is enough, and entries with more of them rank higher.
+            String query = "what did I write about faith and trials";
+            List<Entry> ranked = journal.searchRanked(query, 10);
+            Assert.assertEquals(ranked.size(), 3);
+            Assert.assertEquals(ranked.get(0), trials);
+            Assert.assertTrue(ranked.contains(work));
+            Assert.assertEquals(journal.searchRanked(query, 1), Arrays.asList(trials));
+            Assert.assertEquals(journal.searchRanked("\"test our faith\"", 10), Arrays.asList(trials));
+            Assert.assertTrue(journal.searchRanked("charity", 10).isEmpty());
+            
+            // The entry tagged Faith without the word only ranks with topics.
+            Assert.assertFalse(journal.searchRanked("faith", 10).contains(trust));
+            List<Entry> boosted = journal.searchRanked("faith", 10, SearchIndex.DEFAULT_TOPIC_BOOST);
+            Assert.assertEquals(boosted.size(), 3);
+            Assert.assertEquals(boosted.get(0), trials);
+            Assert.assertTrue(boosted.contains(trust));
+        } catch (IOException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @Test
+    public void testDateIndex() {
+        Assert.assertEquals(DateIndex.toEpochDay("1970-01-01"), 0);
+        Assert.assertEquals(DateIndex.toEpochDay("1969-12-31"), -1);
+        Assert.assertEquals(DateIndex.toEpochDay("2000-03-01"), 11017);
+        Assert.assertEquals(DateIndex.toEpochDay("2014-10-30"), 16373);
+        Assert.assertEquals(DateIndex.toEpochDay("2012-02-29"), DateIndex.toEpochDay("2012-03-01") - 1);
+        Assert.assertEquals(DateIndex.toEpochDay("2014-02-29"), DateIndex.NO_DAY);
+        Assert.assertEquals(DateIndex.toEpochDay("Oct 30 2014"), DateIndex.NO_DAY);
+        
+        try {
+            Journal journal = new Journal();
+            List<Entry> entries = new ArrayList<>();
+            String[] dates = {"2014-04-01", "2014-03-15", "2014-02-28", "2014-03-01", "2014-03-15", "someday"};
+            for (String date : dates) {
+                Entry entry = new Entry();
+                entry.setDate(date);
+                entry.setText(date);
+                entries.add(entry);
+            }
+            journal.setEntries(new ArrayList<>(entries));
+            
+            DateIndex index = journal.getDateIndex();
+            Assert.assertEquals(index.getMonth(2014, 3),
+                                Arrays.asList(entries.get(3), entries.get(1), entries.get(4)));
+            Assert.assertEquals(index.getRange("2014-02-01", "2014-03-01"),
+                                Arrays.asList(entries.get(2), entries.get(3)));
+            Assert.assertEquals(index.get("2014-03-15").size(), 2);
+            Assert.assertSame(journal.getEntry("someday"), entries.get(5));
+            Assert.assertTrue(index.getMonth(2014, 5).isEmpty());
+            
+            // The other entry of a day is still found once the first is removed.
+            journal.removeEntry(entries.get(1));
+            Assert.assertSame(journal.getEntry("2014-03-15"), entries.get(4));
+            Assert.assertEquals(index.getMonth(2014, 3).size(), 2);
+        } catch (IOException ex) {
+            Logger.getLogger(SpiritualInsighJournalTests.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @BeforeMethod
+    public void setUpMethod() throws Exception {
+    }
+
+    @AfterMethod
+    public void tearDownMethod() throws Exception {
+    }
+}